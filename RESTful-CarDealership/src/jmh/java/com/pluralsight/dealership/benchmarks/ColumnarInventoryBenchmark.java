@@ -0,0 +1,69 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.data.ColumnarInventory;
+import com.pluralsight.dealership.data.InventoryStore;
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// an analytics-style filter over the whole lot: price in [a, b] and mileage < c and year >= d
+// answered by filtering a List<Vehicle>, by the on-heap InventoryStore, and by the off-heap columnar store
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarInventoryBenchmark {
+
+    @Param({"100000"})
+    private int vehicles;
+
+    private List<Vehicle> list;
+    private InventoryStore store;
+    private ColumnarInventory columnar;
+    private VehicleSearchCriteria criteria;
+
+    @Setup
+    public void setUp() {
+        list = SyntheticInventory.vehicles(vehicles);
+        store = new InventoryStore("memory");
+        store.load(list);
+        columnar = new ColumnarInventory("columnar");
+        columnar.load(list);
+
+        criteria = new VehicleSearchCriteria();
+        criteria.setMinPrice(15000.0);
+        criteria.setMaxPrice(30000.0);
+        criteria.setMaxMileage(60000.0);
+        criteria.setMinYear(2018);
+    }
+
+    @TearDown
+    public void tearDown() {
+        columnar.close();
+    }
+
+    @Benchmark
+    public List<Vehicle> filterList() {
+        return list.stream().filter(criteria::matches).toList();
+    }
+
+    @Benchmark
+    public List<Vehicle> inventoryStoreSearch() {
+        return store.search(criteria);
+    }
+
+    @Benchmark
+    public int[] columnarVins() {
+        return columnar.matchingVins(criteria);
+    }
+
+    @Benchmark
+    public List<Vehicle> columnarSearch() {
+        return columnar.search(criteria);
+    }
+}
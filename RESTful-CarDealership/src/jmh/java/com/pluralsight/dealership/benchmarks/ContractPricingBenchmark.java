@@ -0,0 +1,62 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.models.LeaseContract;
+import com.pluralsight.dealership.models.SalesContract;
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.services.FinancingQuoteService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// cost of one monthly payment / total price calculation, below and above the $10,000 financing cutoff
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractPricingBenchmark {
+
+    @Param({"8500", "24500"})
+    private double price;
+
+    private Vehicle vehicle;
+    private SalesContract salesContract;
+    private LeaseContract leaseContract;
+    private final FinancingQuoteService quoteService = new FinancingQuoteService();
+    private double[] listingPrices;
+
+    @Setup
+    public void setUp() {
+        vehicle = new Vehicle(123456789, 2020, "Toyota", "Camry", "Sedan", "Red", 30000, price, false);
+        salesContract = new SalesContract("2025-01-01", "Benchmark", "bench@example.com", vehicle, 0, 0, 0, true);
+        leaseContract = new LeaseContract("2025-01-01", "Benchmark", "bench@example.com", vehicle, 0, 0);
+        listingPrices = SyntheticInventory.vehicles(10000).stream().mapToDouble(Vehicle::getPrice).toArray();
+    }
+
+    @Benchmark
+    public double salesMonthlyPayment() {
+        return salesContract.getMonthlyPayment(vehicle);
+    }
+
+    @Benchmark
+    public double salesTotalPrice() {
+        return salesContract.getTotalPrice(vehicle);
+    }
+
+    @Benchmark
+    public double leaseMonthlyPayment() {
+        return leaseContract.getMonthlyPayment(vehicle);
+    }
+
+    @Benchmark
+    public double leaseTotalPrice() {
+        return leaseContract.getTotalPrice(vehicle);
+    }
+
+    // 10,000 listings quoted in one pass, compare per-op time against 10,000 x salesMonthlyPayment
+    @Benchmark
+    public double[] batchSalesPayments() {
+        return quoteService.salesPayments(listingPrices);
+    }
+}
@@ -0,0 +1,109 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.data.InventoryStore;
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleFacets;
+import com.pluralsight.dealership.models.VehicleFilter;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.models.VehicleSortKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// cost of answering searches and facets from the in-memory inventory store
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventoryStoreBenchmark {
+
+    @Param({"100000"})
+    private int vehicles;
+
+    private InventoryStore store;
+    private VehicleSearchCriteria everything;
+    private VehicleSearchCriteria oneMake;
+    private VehicleSearchCriteria makeAndPrice;
+    private VehicleFilter anyOfAndExclusions;
+    private VehicleSearchCriteria suvs;
+    private Vehicle typical;
+    private Vehicle lowestMileage;
+
+    @Setup
+    public void setUp() {
+        store = new InventoryStore("memory");
+        store.load(SyntheticInventory.vehicles(vehicles));
+
+        everything = new VehicleSearchCriteria();
+        oneMake = new VehicleSearchCriteria();
+        oneMake.setMake("Toyota");
+        makeAndPrice = new VehicleSearchCriteria();
+        makeAndPrice.setMake("Toyota");
+        makeAndPrice.setColor("Red");
+        makeAndPrice.setMaxPrice(20000.0);
+        suvs = new VehicleSearchCriteria();
+        suvs.setType("SUV");
+        anyOfAndExclusions = new VehicleFilter();
+        anyOfAndExclusions.setMake(List.of("Toyota", "Ford"));
+        anyOfAndExclusions.setColor(List.of("Red", "Blue"));
+        anyOfAndExclusions.setNotType(List.of("Sedan"));
+        anyOfAndExclusions.setNotYear(List.of(2015, 2016));
+        typical = new Vehicle(99999999, 2015, "Toyota", "Camry", "Sedan", "Red", 60000.5, 25000.5, false);
+        lowestMileage = new Vehicle(99999998, 2015, "Toyota", "Camry", "Sedan", "Red", 0.5, 25000.5, false);
+    }
+
+    @Benchmark
+    public VehicleFacets facetsForEverything() {
+        return store.facets(everything);
+    }
+
+    @Benchmark
+    public VehicleFacets facetsForOneMake() {
+        return store.facets(oneMake);
+    }
+
+    @Benchmark
+    public VehicleFacets facetsForCombinedFilters() {
+        return store.facets(makeAndPrice);
+    }
+
+    @Benchmark
+    public List<Vehicle> searchCombinedFilters() {
+        return store.search(makeAndPrice);
+    }
+
+    @Benchmark
+    public List<Vehicle> filterAnyOfAndExclusions() {
+        return store.filter(anyOfAndExclusions);
+    }
+
+    // the homepage widgets: 10 cheapest SUVs and the 10 newest arrivals
+    @Benchmark
+    public List<Vehicle> topTenCheapestSuvs() {
+        return store.top(suvs, VehicleSortKey.PRICE, false, null, 10);
+    }
+
+    @Benchmark
+    public List<Vehicle> topTenNewest() {
+        return store.top(everything, VehicleSortKey.YEAR, true, null, 10);
+    }
+
+    // one vehicle added and removed again, with every index and facet total kept up to date
+    @Benchmark
+    public int putAndRemove() {
+        store.put(typical);
+        store.remove(typical.getVin());
+        return store.size();
+    }
+
+    // the worst case: the vehicle leaving holds the lowest mileage of each of its groups, so they are rescanned
+    @Benchmark
+    public int putAndRemoveExtreme() {
+        store.put(lowestMileage);
+        store.remove(lowestMileage.getVin());
+        return store.size();
+    }
+}
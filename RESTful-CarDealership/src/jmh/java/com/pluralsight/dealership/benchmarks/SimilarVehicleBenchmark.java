@@ -0,0 +1,61 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.data.SimilarVehicleIndex;
+import com.pluralsight.dealership.models.SimilarVehicle;
+import com.pluralsight.dealership.models.Vehicle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// "10 similar cars" for one vehicle: the k-d tree lookup against scoring every vehicle on the lot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimilarVehicleBenchmark {
+
+    @Param({"100000"})
+    private int vehicles;
+
+    private List<Vehicle> list;
+    private SimilarVehicleIndex index;
+    private Vehicle target;
+
+    @Setup
+    public void setUp() {
+        list = SyntheticInventory.vehicles(vehicles);
+        index = new SimilarVehicleIndex(2, 20000, 5000);
+        index.load(list);
+        target = list.get(vehicles / 2);
+    }
+
+    @Benchmark
+    public List<SimilarVehicle> kdTree() {
+        return index.similar(target.getVin(), null, null, 10);
+    }
+
+    @Benchmark
+    public List<SimilarVehicle> kdTreeSameMakeAndType() {
+        return index.similar(target.getVin(), target.getMake(), target.getType(), 10);
+    }
+
+    @Benchmark
+    public List<Vehicle> scanEverything() {
+        return list.stream()
+                .filter(vehicle -> vehicle.getVin() != target.getVin())
+                .sorted(Comparator.comparingDouble(this::distance))
+                .limit(10)
+                .toList();
+    }
+
+    private double distance(Vehicle vehicle) {
+        double years = (vehicle.getYear() - target.getYear()) / 2.0;
+        double miles = (vehicle.getMileage() - target.getMileage()) / 20000;
+        double price = (vehicle.getPrice() - target.getPrice()) / 5000;
+        return years * years + miles * miles + price * price;
+    }
+}
@@ -0,0 +1,64 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.models.Vehicle;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// made-up inventory for the benchmarks, seeded so every run and every commit sees the same data
+final class SyntheticInventory {
+    private static final String[] MAKES = {"Toyota", "Ford", "Honda", "Chevrolet", "Nissan", "BMW", "Subaru", "Kia"};
+    private static final String[] MODELS = {"Camry", "F-150", "Civic", "Silverado", "Altima", "X5", "Outback", "Soul"};
+    private static final String[] TYPES = {"Sedan", "Truck", "SUV", "Coupe", "Hatchback", "Van"};
+    private static final String[] COLORS = {"Red", "Blue", "Black", "White", "Silver", "Gray", "Green"};
+
+    private SyntheticInventory() {
+    }
+
+    // rows in the column order of VehicleRowMapper.COLUMNS
+    static Object[][] rows(int count) {
+        Random random = new Random(42);
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[]{
+                    100000000 + i,
+                    2005 + random.nextInt(20),
+                    MAKES[random.nextInt(MAKES.length)],
+                    MODELS[random.nextInt(MODELS.length)],
+                    TYPES[random.nextInt(TYPES.length)],
+                    COLORS[random.nextInt(COLORS.length)],
+                    (double) random.nextInt(200000),
+                    (double) (3000 + random.nextInt(60000)),
+                    1 + i % 3};
+        }
+        return rows;
+    }
+
+    static List<Vehicle> vehicles(int count) {
+        List<Vehicle> vehicles = new ArrayList<>(count);
+        for (Object[] row : rows(count)) {
+            Vehicle vehicle = new Vehicle((int) row[0], (int) row[1], (String) row[2], (String) row[3], (String) row[4],
+                    (String) row[5], (double) row[6], (double) row[7], false);
+            vehicle.setDealershipId((int) row[8]);
+            vehicles.add(vehicle);
+        }
+        return vehicles;
+    }
+
+    // a forward-only ResultSet over the given rows that answers next() and the getters the row mapper uses
+    // it is a dynamic proxy, so its own overhead is the same on every commit and cancels out when comparing runs
+    static ResultSet resultSet(Object[][] rows) {
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "next" -> ++cursor[0] < rows.length;
+                    case "getInt", "getString", "getDouble", "getObject" -> rows[cursor[0]][(int) args[0] - 1];
+                    case "wasNull" -> false;
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,71 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.models.Vehicle;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+// heap held by a large list of vehicles with the categorical fields shared through the CategoryDictionary,
+// compared with every vehicle holding its own copies like they did before
+// this is not a JMH benchmark, heap footprint is measured once after a full GC instead of timed
+public final class VehicleFootprint {
+    private static final String[] CATEGORICAL_FIELDS = {"make", "model", "type", "color"};
+
+    private VehicleFootprint() {
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        int count = 100000;
+        for (String arg : args) {
+            if (arg.matches("\\d+")) {
+                count = Integer.parseInt(arg);
+            }
+        }
+        Object[][] rows = SyntheticInventory.rows(count);
+
+        long before = usedHeapAfterGc();
+        List<Vehicle> shared = vehicles(rows, false);
+        long sharedBytes = usedHeapAfterGc() - before;
+        System.out.println(shared.size() + " vehicles, shared categorical values:   " + sharedBytes / 1024 + " KiB");
+        shared = null;
+
+        before = usedHeapAfterGc();
+        List<Vehicle> copies = vehicles(rows, true);
+        long copiesBytes = usedHeapAfterGc() - before;
+        System.out.println(copies.size() + " vehicles, one copy per vehicle:       " + copiesBytes / 1024 + " KiB");
+        System.out.printf("saved %.1f%% (%d bytes per vehicle)%n",
+                100.0 * (copiesBytes - sharedBytes) / copiesBytes, (copiesBytes - sharedBytes) / count);
+    }
+
+    // every row gets fresh Strings, the way a ResultSet or a JSON parser hands them out
+    // with unshared set, the dictionary is bypassed so each vehicle keeps its own copies
+    private static List<Vehicle> vehicles(Object[][] rows, boolean unshared) throws ReflectiveOperationException {
+        List<Vehicle> vehicles = new ArrayList<>(rows.length);
+        for (Object[] row : rows) {
+            Vehicle vehicle = new Vehicle((int) row[0], (int) row[1], fresh(row[2]), fresh(row[3]), fresh(row[4]),
+                    fresh(row[5]), (double) row[6], (double) row[7], false);
+            if (unshared) {
+                for (String name : CATEGORICAL_FIELDS) {
+                    Field field = Vehicle.class.getDeclaredField(name);
+                    field.setAccessible(true);
+                    field.set(vehicle, fresh(field.get(vehicle)));
+                }
+            }
+            vehicles.add(vehicle);
+        }
+        return vehicles;
+    }
+
+    private static String fresh(Object value) {
+        return new String(((String) value).toCharArray());
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
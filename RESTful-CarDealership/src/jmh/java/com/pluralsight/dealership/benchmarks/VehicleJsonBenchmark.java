@@ -0,0 +1,35 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pluralsight.dealership.models.Vehicle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// cost of serializing an inventory listing the way the controllers send it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleJsonBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    private int vehicles;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Vehicle> listing;
+
+    @Setup
+    public void setUp() {
+        listing = SyntheticInventory.vehicles(vehicles);
+    }
+
+    @Benchmark
+    public byte[] serializeListing() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listing);
+    }
+}
@@ -0,0 +1,51 @@
+package com.pluralsight.dealership.benchmarks;
+
+import com.pluralsight.dealership.data.VehicleRowMapper;
+import com.pluralsight.dealership.models.Vehicle;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// cost of turning a large result set into Vehicles, and of formatting them for the console
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VehicleRowMappingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int rows;
+
+    private Object[][] data;
+    private List<Vehicle> vehicles;
+
+    @Setup
+    public void setUp() {
+        data = SyntheticInventory.rows(rows);
+        vehicles = SyntheticInventory.vehicles(rows);
+    }
+
+    @Benchmark
+    public List<Vehicle> mapResultSet() throws SQLException {
+        ResultSet queryResults = SyntheticInventory.resultSet(data);
+        List<Vehicle> results = new ArrayList<>();
+        while (queryResults.next()) {
+            results.add(VehicleRowMapper.mapRow(queryResults));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public void formatRows(Blackhole blackhole) {
+        for (Vehicle vehicle : vehicles) {
+            blackhole.consume(vehicle.toFormattedRow());
+        }
+    }
+}
@@ -2,8 +2,12 @@ package com.pluralsight.dealership;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// the controllers live in their own top level package, outside the default scan of this one
+@SpringBootApplication(scanBasePackages = {"com.pluralsight.dealership", "controllers"})
+// the inventory feed heartbeats run on a schedule
+@EnableScheduling
 public class RESTfulCarApplication {
 
     public static void main(String[] args) {
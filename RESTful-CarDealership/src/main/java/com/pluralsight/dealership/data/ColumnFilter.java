@@ -0,0 +1,32 @@
+package com.pluralsight.dealership.data;
+
+// a search turned into bounds on the ColumnarInventory's columns
+// every bound is always set (to the widest range when the search doesn't filter on it), only the
+// category codes and the vin have an "any" value, so the scan kernels can apply them without branches
+final class ColumnFilter {
+    static final int ANY = -1;
+
+    int vin = ANY;
+    int make = ANY;
+    int model = ANY;
+    int color = ANY;
+    int type = ANY;
+    double minPrice = Double.NEGATIVE_INFINITY;
+    double maxPrice = Double.POSITIVE_INFINITY;
+    double minMileage = Double.NEGATIVE_INFINITY;
+    double maxMileage = Double.POSITIVE_INFINITY;
+    int minYear = Integer.MIN_VALUE;
+    int maxYear = Integer.MAX_VALUE;
+
+    boolean filtersPrice() {
+        return minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY;
+    }
+
+    boolean filtersMileage() {
+        return minMileage != Double.NEGATIVE_INFINITY || maxMileage != Double.POSITIVE_INFINITY;
+    }
+
+    boolean filtersYear() {
+        return minYear != Integer.MIN_VALUE || maxYear != Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,74 @@
+package com.pluralsight.dealership.data;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+// evaluates a ColumnFilter over the first rows of the ColumnarInventory's columns
+// the Vector API version is used when the JVM was started with --add-modules jdk.incubator.vector,
+// otherwise this plain loop does the same work one row at a time
+class ColumnScan {
+
+    // the scan to use in this JVM
+    static ColumnScan create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // loaded by name so this class never links against the incubator module when it isn't there
+                return (ColumnScan) Class.forName("com.pluralsight.dealership.data.VectorColumnScan")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return new ColumnScan();
+            }
+        }
+        return new ColumnScan();
+    }
+
+    // adds the numbers of the matching rows to matches
+    void scan(ColumnarInventory.Columns columns, int rows, ColumnFilter filter, RowList matches) {
+        scanRows(columns, 0, rows, filter, matches);
+    }
+
+    // the first row whose value in the int column is the given value, or -1
+    int find(MemorySegment column, int rows, int value) {
+        return findFrom(column, 0, rows, value);
+    }
+
+    String describe() {
+        return "scalar";
+    }
+
+    // the row-at-a-time loop, also used by the vector scan for the rows left over after the last full vector
+    static void scanRows(ColumnarInventory.Columns columns, int from, int to, ColumnFilter filter, RowList matches) {
+        for (int row = from; row < to; row++) {
+            if (matches(columns, row, filter)) {
+                matches.add(row);
+            }
+        }
+    }
+
+    static int findFrom(MemorySegment column, int from, int to, int value) {
+        for (int row = from; row < to; row++) {
+            if (column.getAtIndex(ValueLayout.JAVA_INT, row) == value) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(ColumnarInventory.Columns columns, int row, ColumnFilter filter) {
+        double price = columns.price.getAtIndex(ValueLayout.JAVA_DOUBLE, row);
+        double mileage = columns.mileage.getAtIndex(ValueLayout.JAVA_DOUBLE, row);
+        int year = columns.year.getAtIndex(ValueLayout.JAVA_INT, row);
+        return price >= filter.minPrice && price <= filter.maxPrice
+                && mileage >= filter.minMileage && mileage <= filter.maxMileage
+                && year >= filter.minYear && year <= filter.maxYear
+                && matchesCode(columns.vin, row, filter.vin)
+                && matchesCode(columns.make, row, filter.make)
+                && matchesCode(columns.model, row, filter.model)
+                && matchesCode(columns.color, row, filter.color)
+                && matchesCode(columns.type, row, filter.type);
+    }
+
+    private static boolean matchesCode(MemorySegment column, int row, int code) {
+        return code == ColumnFilter.ANY || column.getAtIndex(ValueLayout.JAVA_INT, row) == code;
+    }
+}
@@ -0,0 +1,331 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.CategoryDictionary;
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// the component tag tells Spring to keep one off-heap, column-per-field copy of the unsold inventory
+// when inventory.store=columnar the DealershipDAO answers searches from here instead of going to MySQL
+// every field is a column of primitives in memory outside the Java heap (make, model, color and type as small
+// int codes), so 100k vehicles are a handful of memory segments the garbage collector never has to look at,
+// and a filter over several columns is a straight scan that the Vector API runs several rows at a time
+// rows are kept dense: removing a vehicle moves the last row into its place
+@Component
+public class ColumnarInventory {
+    private static final Logger logger = LogManager.getLogger(ColumnarInventory.class);
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean enabled;
+    private final ColumnScan scan;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns = new Columns(INITIAL_CAPACITY);
+    private int rows;
+    private volatile boolean loaded;
+
+    // category value (lower cased, MySQL compares without case) -> code, and code -> the value as first seen
+    // the vocabulary is a few hundred values, codes are never reused so the columns never need rewriting
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[64];
+
+    // the value comes from the application.properties: sql (default), memory or columnar
+    @Autowired
+    public ColumnarInventory(@Value("${inventory.store:sql}") String mode) {
+        this(mode, ColumnScan.create());
+    }
+
+    ColumnarInventory(String mode, ColumnScan scan) {
+        this.enabled = "columnar".equalsIgnoreCase(mode.trim());
+        this.scan = scan;
+    }
+
+    public boolean isActive() {
+        return enabled && loaded;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // replace the contents with a fresh copy of the unsold inventory
+    public void load(Collection<Vehicle> vehicles) {
+        lock.writeLock().lock();
+        try {
+            rows = 0;
+            ensureCapacity(vehicles.size());
+            for (Vehicle vehicle : vehicles) {
+                writeRow(rows++, vehicle);
+            }
+            loaded = true;
+            logger.info("✅ Loaded {} vehicles into the off-heap columnar inventory, {} scan ✅", rows, scan.describe());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // add a vehicle, or replace it if the vin is already here
+    public void put(Vehicle vehicle) {
+        lock.writeLock().lock();
+        try {
+            removeRow(vehicle.getVin());
+            ensureCapacity(rows + 1);
+            writeRow(rows++, vehicle);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int vin) {
+        lock.writeLock().lock();
+        try {
+            removeRow(vin);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        if (!isActive()) {
+            return;
+        }
+        if (change.type() == InventoryChangeEvent.Type.ADDED) {
+            put(change.vehicle());
+        } else {
+            remove(change.vin());
+        }
+    }
+
+    // the vins of every vehicle matching the criteria, without building a single Vehicle
+    public int[] matchingVins(VehicleSearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            RowList matches = matchingRows(criteria);
+            int[] vins = new int[matches.size()];
+            for (int i = 0; i < vins.length; i++) {
+                vins[i] = columns.vin.getAtIndex(ValueLayout.JAVA_INT, matches.get(i));
+            }
+            return vins;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the matching vehicles, only these are turned back into Vehicle objects
+    public List<Vehicle> search(VehicleSearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            RowList matches = matchingRows(criteria);
+            List<Vehicle> results = new ArrayList<>(matches.size());
+            for (int i = 0; i < matches.size(); i++) {
+                results.add(readRow(matches.get(i)));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the pre destroy tag has Spring give the off-heap memory back when the application stops
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            columns.arena.close();
+            columns = new Columns(0);
+            rows = 0;
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // helper methods
+    private RowList matchingRows(VehicleSearchCriteria criteria) {
+        RowList matches = new RowList();
+        ColumnFilter filter = toFilter(criteria);
+        if (filter != null) {
+            scan.scan(columns, rows, filter, matches);
+        }
+        return matches;
+    }
+
+    // null when the criteria names a make, model, color or type that no vehicle has, nothing can match then
+    private ColumnFilter toFilter(VehicleSearchCriteria criteria) {
+        ColumnFilter filter = new ColumnFilter();
+        if (criteria.getVin() != null) {
+            filter.vin = criteria.getVin();
+        }
+        if ((filter.make = lookupCode(criteria.getMake())) == Integer.MIN_VALUE
+                || (filter.model = lookupCode(criteria.getModel())) == Integer.MIN_VALUE
+                || (filter.color = lookupCode(criteria.getColor())) == Integer.MIN_VALUE
+                || (filter.type = lookupCode(criteria.getType())) == Integer.MIN_VALUE) {
+            return null;
+        }
+        if (criteria.getMinPrice() != null) filter.minPrice = criteria.getMinPrice();
+        if (criteria.getMaxPrice() != null) filter.maxPrice = criteria.getMaxPrice();
+        if (criteria.getMinMileage() != null) filter.minMileage = criteria.getMinMileage();
+        if (criteria.getMaxMileage() != null) filter.maxMileage = criteria.getMaxMileage();
+        if (criteria.getMinYear() != null) filter.minYear = criteria.getMinYear();
+        if (criteria.getMaxYear() != null) filter.maxYear = criteria.getMaxYear();
+        return filter;
+    }
+
+    // ANY when there is no filter, MIN_VALUE when the value isn't in the vocabulary
+    private int lookupCode(String value) {
+        if (value == null) {
+            return ColumnFilter.ANY;
+        }
+        Integer code = codes.get(key(value));
+        return code == null ? Integer.MIN_VALUE : code;
+    }
+
+    private int codeFor(String value) {
+        return codes.computeIfAbsent(key(value), key -> {
+            int code = codes.size();
+            if (code == values.length) {
+                values = Arrays.copyOf(values, code * 2);
+            }
+            values[code] = CategoryDictionary.intern(value);
+            return code;
+        });
+    }
+
+    private void writeRow(int row, Vehicle vehicle) {
+        columns.vin.setAtIndex(ValueLayout.JAVA_INT, row, vehicle.getVin());
+        columns.year.setAtIndex(ValueLayout.JAVA_INT, row, vehicle.getYear());
+        columns.make.setAtIndex(ValueLayout.JAVA_INT, row, codeFor(vehicle.getMake()));
+        columns.model.setAtIndex(ValueLayout.JAVA_INT, row, codeFor(vehicle.getModel()));
+        columns.color.setAtIndex(ValueLayout.JAVA_INT, row, codeFor(vehicle.getColor()));
+        columns.type.setAtIndex(ValueLayout.JAVA_INT, row, codeFor(vehicle.getType()));
+        columns.price.setAtIndex(ValueLayout.JAVA_DOUBLE, row, vehicle.getPrice());
+        columns.mileage.setAtIndex(ValueLayout.JAVA_DOUBLE, row, vehicle.getMileage());
+        columns.dealership.setAtIndex(ValueLayout.JAVA_INT, row, vehicle.getDealershipId());
+    }
+
+    private Vehicle readRow(int row) {
+        Vehicle vehicle = new Vehicle(
+                columns.vin.getAtIndex(ValueLayout.JAVA_INT, row),
+                columns.year.getAtIndex(ValueLayout.JAVA_INT, row),
+                values[columns.make.getAtIndex(ValueLayout.JAVA_INT, row)],
+                values[columns.model.getAtIndex(ValueLayout.JAVA_INT, row)],
+                values[columns.type.getAtIndex(ValueLayout.JAVA_INT, row)],
+                values[columns.color.getAtIndex(ValueLayout.JAVA_INT, row)],
+                columns.mileage.getAtIndex(ValueLayout.JAVA_DOUBLE, row),
+                columns.price.getAtIndex(ValueLayout.JAVA_DOUBLE, row),
+                false);
+        vehicle.setDealershipId(columns.dealership.getAtIndex(ValueLayout.JAVA_INT, row));
+        return vehicle;
+    }
+
+    // finds the vin with a scan of the vin column (there is no vin -> row map to keep on the heap)
+    // and moves the last row into its place
+    private void removeRow(int vin) {
+        int row = scan.find(columns.vin, rows, vin);
+        if (row < 0) {
+            return;
+        }
+        int last = --rows;
+        if (row != last) {
+            columns.copyRow(last, row);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= columns.capacity) {
+            return;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, columns.capacity);
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        Columns bigger = new Columns(capacity);
+        bigger.copyFrom(columns, rows);
+        columns.arena.close();
+        columns = bigger;
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // one off-heap segment per field, all from one arena so they are allocated and freed together
+    static final class Columns {
+        final Arena arena = Arena.ofShared();
+        final int capacity;
+        final MemorySegment vin;
+        final MemorySegment year;
+        final MemorySegment make;
+        final MemorySegment model;
+        final MemorySegment color;
+        final MemorySegment type;
+        final MemorySegment price;
+        final MemorySegment mileage;
+        // only carried along for the results, dealership searches are answered by the dealership's database
+        final MemorySegment dealership;
+
+        private Columns(int capacity) {
+            this.capacity = capacity;
+            // 64 byte alignment keeps every vector load inside one cache line
+            vin = arena.allocate((long) capacity * Integer.BYTES, 64);
+            year = arena.allocate((long) capacity * Integer.BYTES, 64);
+            make = arena.allocate((long) capacity * Integer.BYTES, 64);
+            model = arena.allocate((long) capacity * Integer.BYTES, 64);
+            color = arena.allocate((long) capacity * Integer.BYTES, 64);
+            type = arena.allocate((long) capacity * Integer.BYTES, 64);
+            price = arena.allocate((long) capacity * Double.BYTES, 64);
+            mileage = arena.allocate((long) capacity * Double.BYTES, 64);
+            dealership = arena.allocate((long) capacity * Integer.BYTES, 64);
+        }
+
+        private void copyFrom(Columns other, int rows) {
+            long ints = (long) rows * Integer.BYTES;
+            long doubles = (long) rows * Double.BYTES;
+            MemorySegment.copy(other.vin, 0, vin, 0, ints);
+            MemorySegment.copy(other.year, 0, year, 0, ints);
+            MemorySegment.copy(other.make, 0, make, 0, ints);
+            MemorySegment.copy(other.model, 0, model, 0, ints);
+            MemorySegment.copy(other.color, 0, color, 0, ints);
+            MemorySegment.copy(other.type, 0, type, 0, ints);
+            MemorySegment.copy(other.price, 0, price, 0, doubles);
+            MemorySegment.copy(other.mileage, 0, mileage, 0, doubles);
+            MemorySegment.copy(other.dealership, 0, dealership, 0, ints);
+        }
+
+        private void copyRow(int from, int to) {
+            for (MemorySegment column : new MemorySegment[]{vin, year, make, model, color, type, dealership}) {
+                column.setAtIndex(ValueLayout.JAVA_INT, to, column.getAtIndex(ValueLayout.JAVA_INT, from));
+            }
+            price.setAtIndex(ValueLayout.JAVA_DOUBLE, to, price.getAtIndex(ValueLayout.JAVA_DOUBLE, from));
+            mileage.setAtIndex(ValueLayout.JAVA_DOUBLE, to, mileage.getAtIndex(ValueLayout.JAVA_DOUBLE, from));
+        }
+    }
+}
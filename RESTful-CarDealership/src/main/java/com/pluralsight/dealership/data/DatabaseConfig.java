@@ -1,6 +1,5 @@
 package com.pluralsight.dealership.data;
 
-import org.apache.commons.dbcp2.BasicDataSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,26 +11,91 @@ public class DatabaseConfig {
     private String username;
     private String password;
     private String url;
+    private final int initialSize;
+    private final int minIdle;
+    private final int maxIdle;
+    private final int maxTotal;
+    private final long maxWaitMillis;
+    private final long slowWaitMillis;
+    private final String validationQuery;
+    private final int validationTimeoutSeconds;
+    private final long validationIntervalMillis;
+    private final boolean poolPreparedStatements;
+    private final int maxOpenPreparedStatements;
     
     // the values come from the application.properties in the resource folder
     // we separate this data so we don't have to hardcode our database login
+    // the pool settings also come from there, the defaults are used when they are left out
     public DatabaseConfig(@Value("${datasource.username}") String username,
                           @Value("${datasource.password}") String password,
-                          @Value("${datasource.url}") String url) {
+                          @Value("${datasource.url}") String url,
+                          @Value("${datasource.pool.initial-size:5}") int initialSize,
+                          @Value("${datasource.pool.min-idle:5}") int minIdle,
+                          @Value("${datasource.pool.max-idle:50}") int maxIdle,
+                          @Value("${datasource.pool.max-total:50}") int maxTotal,
+                          @Value("${datasource.pool.max-wait-millis:5000}") long maxWaitMillis,
+                          @Value("${datasource.pool.slow-wait-millis:250}") long slowWaitMillis,
+                          @Value("${datasource.pool.validation-query:}") String validationQuery,
+                          @Value("${datasource.pool.validation-timeout-seconds:2}") int validationTimeoutSeconds,
+                          @Value("${datasource.pool.validation-interval-millis:30000}") long validationIntervalMillis,
+                          @Value("${datasource.pool.pool-prepared-statements:true}") boolean poolPreparedStatements,
+                          @Value("${datasource.pool.max-open-prepared-statements:100}") int maxOpenPreparedStatements) {
         this.username = username;
         this.password = password;
         this.url = url;
+        this.initialSize = initialSize;
+        this.minIdle = minIdle;
+        this.maxIdle = maxIdle;
+        this.maxTotal = maxTotal;
+        this.maxWaitMillis = maxWaitMillis;
+        this.slowWaitMillis = slowWaitMillis;
+        this.validationQuery = validationQuery;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.poolPreparedStatements = poolPreparedStatements;
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
     }
     
     // the Bean annotation tells Spring to create this object for later use
     // it contains "object factory instructions" to create a BasicDataSource
+    // this is the pool for datasource.url, other dealership databases get theirs from DealershipShards
     @Bean
-    public BasicDataSource dataSource(){
-        BasicDataSource bds = new BasicDataSource();
+    public InstrumentedDataSource dataSource(){
+        return createPool(url);
+    }
+
+    // a pool with the shared login and pool settings for the database at the given url
+    public InstrumentedDataSource createPool(String databaseUrl) {
+        InstrumentedDataSource bds = new InstrumentedDataSource();
         bds.setUsername(username);
         bds.setPassword(password);
-        bds.setUrl(url);
-        
+        bds.setUrl(databaseUrl);
+
+        // pool sizing
+        bds.setInitialSize(initialSize);
+        bds.setMinIdle(minIdle);
+        bds.setMaxIdle(maxIdle);
+        bds.setMaxTotal(maxTotal);
+        bds.setMaxWaitMillis(maxWaitMillis);
+        bds.setSlowWaitMillis(slowWaitMillis);
+
+        // idle connections are checked in the background every validationIntervalMillis instead of on every
+        // borrow, so a query doesn't pay an extra round trip first, and ones that went bad are dropped
+        // without a validation query the check is the driver's isValid (a ping for Connector/J)
+        if (!validationQuery.isBlank()) {
+            bds.setValidationQuery(validationQuery);
+        }
+        bds.setValidationQueryTimeout(validationTimeoutSeconds);
+        bds.setTestOnBorrow(false);
+        bds.setTestWhileIdle(true);
+        bds.setTimeBetweenEvictionRunsMillis(validationIntervalMillis);
+        // every idle connection on each run
+        bds.setNumTestsPerEvictionRun(-1);
+
+        // keep prepared statements open per connection, our queries are the same few strings over and over
+        bds.setPoolPreparedStatements(poolPreparedStatements);
+        bds.setMaxOpenPreparedStatements(maxOpenPreparedStatements);
+
         return bds;
     }
 
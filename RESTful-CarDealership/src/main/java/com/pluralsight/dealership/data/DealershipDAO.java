@@ -1,10 +1,24 @@
 package com.pluralsight.dealership.data;
 
+import com.pluralsight.dealership.models.BulkInsertResult;
+import com.pluralsight.dealership.models.FuzzySearchResult;
+import com.pluralsight.dealership.models.SimilarVehicle;
+import com.pluralsight.dealership.models.Suggestion;
+import com.pluralsight.dealership.models.TermMatch;
 import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleCursor;
+import com.pluralsight.dealership.models.VehicleFacets;
+import com.pluralsight.dealership.models.VehicleFilter;
+import com.pluralsight.dealership.models.VehiclePage;
+import com.pluralsight.dealership.models.VehiclePageRequest;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.models.VehicleSortKey;
+import jakarta.annotation.PostConstruct;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Repository;
 
@@ -14,620 +28,448 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 // the repository tag tells Spring that this class handles the database work
+// every dealership's inventory lives in that dealership's database (see DealershipShards): writes and
+// dealership searches go to its database, searches across dealerships run on all of them at once and are merged
+// searches read from a replica of the database when one is caught up, writes always go to the primary
 @Repository
 public class DealershipDAO {
     private static final Logger logger = LogManager.getLogger(DealershipDAO.class);
-    private final BasicDataSource dataSource;
+    private static final String INSERT_INTO_VEHICLES_QUERY = """
+            insert into car_dealership.vehicles (VIN, `year`, make, model, `type`, color, mileage, price, has_Contract)
+            values (?, ?, ?, ?, ?, ?, ?, ?, false)
+            """;
+    private static final String INSERT_INTO_INVENTORY_QUERY = """
+            insert into car_dealership.inventory (VIN, dealershipID, is_Sold)
+            values (?, ?, ?)
+            """;
+    private final DealershipShards shards;
+    private final InventoryStore inventoryStore;
+    private final InventoryChanges inventoryChanges;
+    private final VehicleTermIndex termIndex;
+    private final ColumnarInventory columnarInventory;
+    private final SimilarVehicleIndex similarIndex;
+    private final SearchResultCache searchCache;
+    // counts queries that failed and came back empty, so an empty result from a failure isn't cached
+    private final AtomicLong queryFailures = new AtomicLong();
+    private final SingleFlight<SearchFlight, List<Vehicle>> searchFlights = new SingleFlight<>();
+    private final int exportFetchSize;
+    private final int bulkChunkSize;
 
     @Autowired
-    public DealershipDAO(BasicDataSource dataSource) {
-        this.dataSource = dataSource;
+    public DealershipDAO(DealershipShards shards, InventoryStore inventoryStore, InventoryChanges inventoryChanges,
+                         VehicleTermIndex termIndex, ColumnarInventory columnarInventory, SimilarVehicleIndex similarIndex,
+                         SearchResultCache searchCache,
+                         @Value("${inventory.export.fetch-size:-2147483648}") int exportFetchSize,
+                         @Value("${inventory.bulk.chunk-size:500}") int bulkChunkSize) {
+        this.shards = shards;
+        this.inventoryStore = inventoryStore;
+        this.inventoryChanges = inventoryChanges;
+        this.termIndex = termIndex;
+        this.columnarInventory = columnarInventory;
+        this.similarIndex = similarIndex;
+        this.searchCache = searchCache;
+        this.exportFetchSize = exportFetchSize;
+        this.bulkChunkSize = Math.max(1, bulkChunkSize);
+    }
+
+    // the post construct tag runs this once the DAO is ready
+    // it fills the typo-tolerant term index, and the in-memory store (inventory.store=memory) or the off-heap
+    // columnar one (inventory.store=columnar), from MySQL
+    // after this they are kept up to date by the InventoryChangeEvents from the write methods
+    @PostConstruct
+    public void loadInMemoryIndexes() {
+        List<Vehicle> vehicles = loadInventory();
+        // a failed query comes back empty, nothing is built from that: the stores stay off so reads keep going
+        // to SQL, and the indexes only get the vehicles added from now on
+        if (vehicles == null) {
+            logger.error("❌ Could not load the inventory at startup, searches will use the database and the term"
+                    + " and similar vehicle indexes stay empty until a restart ❌");
+            return;
+        }
+        if (inventoryStore.isEnabled()) {
+            inventoryStore.load(vehicles);
+        }
+        if (columnarInventory.isEnabled()) {
+            columnarInventory.load(vehicles);
+        }
+        termIndex.load(vehicles);
+        similarIndex.load(vehicles);
+    }
+
+    // the whole inventory straight from the databases, null when a query failed
+    // this skips search(), so the one-off full read doesn't end up in the result cache
+    private List<Vehicle> loadInventory() {
+        long failures = queryFailures.get();
+        List<Vehicle> vehicles = searchDatabase(new VehicleSearchCriteria());
+        return queryFailures.get() == failures ? vehicles : null;
     }
     
     
     // search query methods
-    @Bean
-    public Vehicle getByVin(int userChosenVin) {
-        Vehicle queryVehicle = null;
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where i.VIN = ? and i.is_Sold = false;
-                """;
-
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
-
-            // protect from sql injection
-            s.setInt(1, userChosenVin);
-
-            ResultSet queryResults = s.executeQuery();
-
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
+    // every search goes through here: the filters are compiled into one parameterized query
+    // and each row is mapped by the shared VehicleRowMapper
+    public List<Vehicle> search(VehicleSearchCriteria criteria) {
+        // answer from the in-memory store when it is switched on
+        if (inventoryStore.isActive()) {
+            return inventoryStore.search(criteria);
+        }
+        // the columns can't filter on dealership, so one dealership's search goes to its database
+        if (columnarInventory.isActive() && criteria.getDealershipId() == null) {
+            return columnarInventory.search(criteria);
+        }
 
-                // create a new instance of the Vehicle model and add to the array to be returned
-                queryVehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
+        // the same few searches come in over and over, those are answered from the result cache
+        if (searchCache.isEnabled()) {
+            List<Vehicle> cached = searchCache.get(criteria);
+            if (cached != null) {
+                return cached;
             }
+        }
 
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles with the vin: {} ✅", userChosenVin);
-            } else {
-                logger.warn("❌ No vehicles found with the vin: {} ❌", userChosenVin);
+        // identical searches that arrive while one is already running wait for it and share its rows
+        // the inventory version is part of the key, so after a change nobody joins a query that started before it,
+        // and so are the pools, so a client that just wrote doesn't join a read from a replica without its write
+        long version = inventoryChanges.getVersion();
+        List<BasicDataSource> pools = readPools(criteria);
+        SearchFlight flight = new SearchFlight(SearchResultCache.SearchKey.of(criteria), version, pools);
+        List<Vehicle> shared = searchFlights.load(flight, () -> {
+            long failures = queryFailures.get();
+            // a replica that hasn't caught up with someone else's write is fine for this caller, not for the cache
+            boolean current = shards.isCurrent(pools);
+            VehicleSearchQuery query = new VehicleSearchQuery(criteria);
+            List<Vehicle> results = shards.fanOut(pools, dataSource -> runQuery(dataSource, query, criteria));
+            if (searchCache.isEnabled() && current && queryFailures.get() == failures) {
+                searchCache.put(criteria, results, version);
             }
-
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by vin");
+            return List.copyOf(results);
+        });
+        // every caller that joined gets the same rows, each one gets its own list and vehicles to sort, page or change
+        List<Vehicle> results = new ArrayList<>(shared.size());
+        for (Vehicle vehicle : shared) {
+            results.add(vehicle.copy());
         }
-
-
-        return queryVehicle;
+        return results;
     }
 
-    @Bean
-    public List<Vehicle> getByPrice(double minPrice, double maxPrice) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                WHERE v.price >= ? AND v.price <= ? and i.is_Sold = false;
-                """;
-
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
+    // one database search in progress, identical searches at the same inventory version on the same pools share it
+    private record SearchFlight(SearchResultCache.SearchKey criteria, long version, List<BasicDataSource> pools) {
+    }
 
-            // protect from sql injection
-            s.setDouble(1, minPrice);
-            s.setDouble(2, maxPrice);
-
-            ResultSet queryResults = s.executeQuery();
-
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
-            }
+    private List<Vehicle> searchDatabase(VehicleSearchCriteria criteria) {
+        VehicleSearchQuery query = new VehicleSearchQuery(criteria);
+        return onShards(criteria, dataSource -> runQuery(dataSource, query, criteria));
+    }
 
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles within the price range: ${} and ${} ✅", minPrice, maxPrice);
-            } else {
-                logger.warn("❌ No vehicles found within the price range: ${} and ${} ❌", minPrice, maxPrice);
-            }
+    // just the vins of the matching vehicles
+    // the columnar store answers this from its columns without building any Vehicle objects
+    public int[] searchVins(VehicleSearchCriteria criteria) {
+        if (columnarInventory.isActive() && criteria.getDealershipId() == null) {
+            return columnarInventory.matchingVins(criteria);
+        }
+        return search(criteria).stream().mapToInt(Vehicle::getVin).toArray();
+    }
 
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by price");
+    // the vehicles matching a combined filter, e.g. make=Ford and color in (red, blue) and type=Truck
+    // the in-memory store resolves it on its bitmap indexes, otherwise it is one query with in / not in lists
+    public List<Vehicle> filter(VehicleFilter filter) {
+        if (inventoryStore.isActive()) {
+            return inventoryStore.filter(filter);
         }
+        VehicleSearchQuery query = new VehicleSearchQuery(filter);
+        return shards.fanOut(dataSource -> runQuery(dataSource, query, filter));
+    }
 
+    // one page of the matching vehicles in the requested order
+    // the page starts right after the cursor, so page N costs the same as page 1
+    public VehiclePage searchPage(VehicleSearchCriteria criteria, VehiclePageRequest pageRequest) {
+        VehicleSortKey sortKey = pageRequest.getSortKey();
+        boolean descending = pageRequest.isDescending();
+        int limit = pageRequest.getEffectiveLimit();
+        VehicleCursor cursor = pageRequest.getCursor() == null
+                ? null
+                : VehicleCursor.decode(pageRequest.getCursor(), sortKey, descending);
+
+        List<Vehicle> results;
+        if (inventoryStore.isActive()) {
+            results = inventoryStore.searchPage(criteria, sortKey, descending, cursor, limit);
+        } else {
+            VehicleSearchQuery query = new VehicleSearchQuery(criteria);
+            query.page(sortKey, descending, cursor, limit);
+            results = firstInOrder(onShards(criteria, dataSource -> runQuery(dataSource, query, criteria)),
+                    sortKey, descending, limit + 1);
+        }
 
-        return results;
+        // both paths fetch one row past the limit, if it came back there is another page
+        if (results.size() <= limit) {
+            return new VehiclePage(results, null);
+        }
+        List<Vehicle> page = new ArrayList<>(results.subList(0, limit));
+        String nextCursor = VehicleCursor.after(page.get(limit - 1), sortKey, descending).encode();
+        return new VehiclePage(page, nextCursor);
     }
 
-    @Bean
-    public List<Vehicle> getByMake(String userChosenMake) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.make = ? and i.is_Sold = false;
-                """;
+    // the first limit matching vehicles in sort order, e.g. the 10 cheapest SUVs or the newest arrivals
+    // memory: a walk down the sorted column that stops early, columnar: a bounded heap over the matches,
+    // sql: order by ... limit, so no path sorts the whole inventory
+    public List<Vehicle> top(VehicleSearchCriteria criteria, VehicleSortKey sortKey, boolean descending, int limit) {
+        if (inventoryStore.isActive()) {
+            return inventoryStore.top(criteria, sortKey, descending, null, limit);
+        }
+        if (columnarInventory.isActive() && criteria.getDealershipId() == null) {
+            VehicleHeap heap = new VehicleHeap(sortKey.comparator(descending), limit);
+            columnarInventory.search(criteria).forEach(heap::offer);
+            return heap.toSortedList();
+        }
+        VehicleSearchQuery query = new VehicleSearchQuery(criteria);
+        query.top(sortKey, descending, limit);
+        return firstInOrder(onShards(criteria, dataSource -> runQuery(dataSource, query, criteria)),
+                sortKey, descending, limit);
+    }
 
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
+    // the unsold vehicles closest to the given one in year, mileage and price, optionally of the same make or type
+    // answered from the in-memory k-d trees, null when the vin isn't in the unsold inventory
+    public List<SimilarVehicle> similarVehicles(int vin, String make, String type, int limit) {
+        return similarIndex.similar(vin, make, type, limit);
+    }
 
-            // protect from sql injection
-            s.setString(1, userChosenMake);
-
-            ResultSet queryResults = s.executeQuery();
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
+    // typo-tolerant search on make, model, color and type: "Toyta" finds the Toyotas, "civic" the Civics
+    // the closest values come from the in-memory term index, then each one is an exact (indexed) search,
+    // so MySQL never has to scan for a LIKE '%...%' pattern
+    public FuzzySearchResult fuzzySearch(String query, VehicleTermIndex.Field field, int limit) {
+        List<TermMatch> matches = termIndex.match(query, field);
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (TermMatch match : matches) {
+            if (vehicles.size() >= limit) {
+                break;
             }
-
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles with the make: {} ✅", userChosenMake);
-            } else {
-                logger.warn("❌ No vehicles found with make: {} ❌", userChosenMake);
+            VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+            VehicleTermIndex.Field.fromParameter(match.field()).filter(criteria, match.value());
+            for (Vehicle vehicle : search(criteria)) {
+                if (vehicles.size() >= limit) {
+                    break;
+                }
+                vehicles.add(vehicle);
             }
-
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by make");
         }
-
-
-        return results;
+        return new FuzzySearchResult(matches, vehicles);
     }
 
-    @Bean
-    public List<Vehicle> getByModel(String userChosenModel) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.model = ? and i.is_Sold = false;
-                """;
-
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
+    // make, model, color and type values starting with the prefix, most vehicles first
+    // answered from the term index's prefix tries, so it costs no database round trip
+    public List<Suggestion> autocomplete(String prefix, VehicleTermIndex.Field field, int limit) {
+        return termIndex.suggest(prefix, field, limit);
+    }
 
-            // protect from sql injection
-            s.setString(1, userChosenModel);
-
-            ResultSet queryResults = s.executeQuery();
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
-            }
+    // facet counts and price/mileage statistics for the matching vehicles
+    // the in-memory store keeps these up to date as vehicles come and go, without it they are
+    // counted while the matching rows stream past, so no list of vehicles is built either way
+    public VehicleFacets facets(VehicleSearchCriteria criteria) {
+        if (inventoryStore.isActive()) {
+            return inventoryStore.facets(criteria);
+        }
 
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles with the model: {} ✅", userChosenModel);
-            } else {
-                logger.warn("❌ No vehicles found with the model: {} ❌", userChosenModel);
-            }
+        FacetAccumulator counted = new FacetAccumulator();
+        exportVehicles(criteria, counted::add);
+        return counted.snapshot();
+    }
 
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by model");
+    // hands every matching vehicle to the consumer as soon as its row is read, nothing is collected in a list
+    // the statement is forward-only and read-only with a fetch size of Integer.MIN_VALUE, which has Connector/J
+    // stream the rows one at a time instead of reading the whole result into memory first, so heap use stays flat
+    // however big the inventory is (a positive fetch size only does that with useCursorFetch=true in the url)
+    public int exportVehicles(VehicleSearchCriteria criteria, Consumer<Vehicle> consumer) {
+        if (inventoryStore.isActive()) {
+            List<Vehicle> vehicles = inventoryStore.search(criteria);
+            vehicles.forEach(consumer);
+            return vehicles.size();
         }
 
+        VehicleSearchQuery query = new VehicleSearchQuery(criteria);
+        int exported = 0;
 
-        return results;
-    }
-
-    @Bean
-    public List<Vehicle> getByMakeModel(String userChosenMake, String userChoseModel) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
+        // the consumer writes to one response, so the databases are streamed one after another
+        for (BasicDataSource dataSource : readPools(criteria)) {
+            try (Connection c = dataSource.getConnection();
+                 PreparedStatement s = c.prepareStatement(query.toSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
 
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.make = ? and v.model = ? and i.is_Sold = false
-                """;
+                s.setFetchSize(exportFetchSize);
+                query.bind(s);
 
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
+                try (ResultSet queryResults = s.executeQuery()) {
+                    while (queryResults.next()) {
+                        consumer.accept(VehicleRowMapper.mapRow(queryResults));
+                        exported++;
+                    }
+                }
 
-            // protect from sql injection
-            s.setString(1, userChosenMake);
-            s.setString(2, userChoseModel);
-
-            ResultSet queryResults = s.executeQuery();
-
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
+            } catch (SQLException e) {
+                // the response has already started, so fail loudly instead of ending the stream as if it were complete
+                logger.error("❌ Could not export vehicles after {} rows ❌", exported);
+                throw new RuntimeException(e);
             }
+        }
 
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles with the make and model: {} {}✅", userChosenMake, userChoseModel);
-            } else {
-                logger.warn("❌ No vehicles found with make and model: {} {}❌", userChosenMake, userChoseModel);
-            }
+        logger.info("✅ Successfully exported {} vehicles matching {} ✅", exported, criteria);
+        return exported;
+    }
 
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by make and model");
-        }
+    // the pools a search reads from: its dealership's database, or every database
+    private List<BasicDataSource> readPools(VehicleSearchCriteria criteria) {
+        return criteria.getDealershipId() != null
+                ? List.of(shards.forReading(criteria.getDealershipId()))
+                : shards.allForReading();
+    }
 
+    // one dealership's query runs on its database, a query across dealerships on every database at once
+    private <T> List<T> onShards(VehicleSearchCriteria criteria, Function<BasicDataSource, List<T>> query) {
+        return shards.fanOut(readPools(criteria), query);
+    }
 
-        return results;
+    // every database sends back its own first rows in order, this keeps the overall first limit of them
+    private static List<Vehicle> firstInOrder(List<Vehicle> merged, VehicleSortKey sortKey, boolean descending, int limit) {
+        VehicleHeap heap = new VehicleHeap(sortKey.comparator(descending), limit);
+        merged.forEach(heap::offer);
+        return heap.toSortedList();
     }
 
-    @Bean
-    public List<Vehicle> getByYear(double minYear, double maxYear) {
+    private List<Vehicle> runQuery(BasicDataSource dataSource, VehicleSearchQuery query, Object criteria) {
         // we need a place to hold the results
         ArrayList<Vehicle> results = new ArrayList<>();
 
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.`year`
-                between 2019 and 2024 and i.is_Sold = false
-                """;
-
         // we need to make a connection to the database, send a prepared statement of the query, and execute it
         try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
+             PreparedStatement s = c.prepareStatement(query.toSql())) {
 
             // protect from sql injection
-            s.setDouble(1, minYear);
-            s.setDouble(2, maxYear);
-
-            ResultSet queryResults = s.executeQuery();
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
+            query.bind(s);
+
+            try (ResultSet queryResults = s.executeQuery()) {
+                // loop through results and parse the information to be saved
+                while (queryResults.next()) {
+                    results.add(VehicleRowMapper.mapRow(queryResults));
+                }
             }
 
             // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles within the year range: {} and {} ✅", (int) minYear, (int) maxYear);
+            if (!results.isEmpty()) {
+                logger.info("✅ Successfully retrieved {} vehicles matching {} ✅", results.size(), criteria);
             } else {
-                logger.warn("❌ No vehicles found within the year range: {} and {} ❌", (int) minYear, (int) maxYear);
+                logger.warn("❌ No vehicles found matching {} ❌", criteria);
             }
 
-
         } catch (SQLException e) {
-            logger.error("Could not query vehicles by year");
+            queryFailures.incrementAndGet();
+            logger.error("Could not query vehicles matching {}", criteria);
         }
 
-
         return results;
     }
 
     @Bean
-    public List<Vehicle> getByColor(String userChosenColor) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.color = ? and i.is_Sold = false
-                """;
+    public Vehicle getByVin(int userChosenVin) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setVin(userChosenVin);
 
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
+        List<Vehicle> results = search(criteria);
+        return results.isEmpty() ? null : results.get(0);
+    }
 
-            // protect from sql injection
-            s.setString(1, userChosenColor);
-
-            ResultSet queryResults = s.executeQuery();
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
-            }
+    @Bean
+    public List<Vehicle> getByPrice(double minPrice, double maxPrice) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setMinPrice(minPrice);
+        criteria.setMaxPrice(maxPrice);
+        return search(criteria);
+    }
 
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles with the color: {} ✅", userChosenColor);
-            } else {
-                logger.warn("❌ No vehicles found with the color: {} ❌", userChosenColor);
-            }
+    @Bean
+    public List<Vehicle> getByMake(String userChosenMake) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setMake(userChosenMake);
+        return search(criteria);
+    }
 
+    @Bean
+    public List<Vehicle> getByModel(String userChosenModel) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setModel(userChosenModel);
+        return search(criteria);
+    }
 
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by color");
-        }
+    @Bean
+    public List<Vehicle> getByMakeModel(String userChosenMake, String userChoseModel) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setMake(userChosenMake);
+        criteria.setModel(userChoseModel);
+        return search(criteria);
+    }
 
+    @Bean
+    public List<Vehicle> getByYear(double minYear, double maxYear) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setMinYear((int) minYear);
+        criteria.setMaxYear((int) maxYear);
+        return search(criteria);
+    }
 
-        return results;
+    @Bean
+    public List<Vehicle> getByColor(String userChosenColor) {
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setColor(userChosenColor);
+        return search(criteria);
     }
 
     @Bean
     public List<Vehicle> getByMileage(double minMileage, double maxMileage) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.mileage
-                between ? and ?
-                and i.is_Sold = false;
-                """;
-
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
-
-            // protect from sql injection
-            s.setDouble(1, minMileage);
-            s.setDouble(2, maxMileage);
-
-            ResultSet queryResults = s.executeQuery();
-
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
-            }
-
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles within the mileage range: {} and {} ✅", (int) minMileage, (int) maxMileage);
-            } else {
-                logger.warn("❌ No vehicles found within the mileage range: {} and {} ❌", (int) minMileage, (int) maxMileage);
-            }
-
-
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by mileage");
-        }
-
-
-        return results;
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setMinMileage(minMileage);
+        criteria.setMaxMileage(maxMileage);
+        return search(criteria);
     }
 
     @Bean
     public List<Vehicle> getByVehicleType(String userChosenVehicleType) {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where v.`type`  = ?
-                and i.is_Sold = false
-                """;
-
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query)) {
-
-            // protect from sql injection
-            s.setString(1, userChosenVehicleType);
-
-            ResultSet queryResults = s.executeQuery();
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
-            }
-
-
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles with the type: {} ✅", userChosenVehicleType);
-            } else {
-                logger.warn("❌ No vehicles found with the type: {} ❌", userChosenVehicleType);
-            }
-
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles by type");
-        }
-
-
-        return results;
+        VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+        criteria.setType(userChosenVehicleType);
+        return search(criteria);
     }
 
     @Bean
     public List<Vehicle> getAllVehicles() {
-        // we need a place to hold the results
-        ArrayList<Vehicle> results = new ArrayList<>();
-
-        // we need to ask for the data
-        String query = """
-                select v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price
-                from car_dealership.vehicles v
-                inner join car_dealership.inventory i on i.VIN = v.VIN
-                where i.is_Sold = false
-                """;
-
-        // we need to make a connection to the database, send a prepared statement of the query, and execute it
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(query);
-             ResultSet queryResults = s.executeQuery()
-        ) {
-
-            // boolean to check whether query results has any rows
-            boolean hasRows = false;
-            // loop through results and parse the information to be saved
-            while (queryResults.next()) {
-                hasRows = true;
-                int vin = queryResults.getInt(1);
-                int year = queryResults.getInt(2);
-                String make = queryResults.getString(3);
-                String model = queryResults.getString(4);
-                String type = queryResults.getString(5);
-                String color = queryResults.getString(6);
-                double mileage = queryResults.getDouble(7);
-                double price = queryResults.getDouble(8);
-
-                // create a new instance of the Vehicle model and add to the array to be returned
-                Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
-                results.add(vehicle);
-            }
-
-            // add a logging message to communicate with user
-            if (hasRows) {
-                logger.info("✅ Successfully retrieved vehicles ✅");
-            } else {
-                logger.warn("❌ No vehicles found ❌");
-            }
-
-        } catch (SQLException e) {
-            logger.error("Could not query vehicles");
-        }
-
-
-        return results;
+        return search(new VehicleSearchCriteria());
     }
 
     // insert data method
     @Bean
     public Vehicle addVehicle(Vehicle vehicle) {
+        return addVehicle(null, vehicle);
+    }
+
+    // the vehicle goes on the given dealership's lot, or the one it names itself, or the default dealership's
+    public Vehicle addVehicle(Integer dealershipId, Vehicle vehicle) {
         // we need to add the given vehicle to the database using an INSERT statement
-        String insertIntoVehiclesQuery = """
-                insert into car_dealership.vehicles (VIN, `year`, make, model, `type`, color, mileage, price, has_Contract)
-                values (?, ?, ?, ?, ?, ?, ?, ?, false)
-                """;
+        boolean addedToVehicles = false;
+        boolean addedToInventory = false;
+        vehicle.setDealershipId(dealershipFor(dealershipId, vehicle));
 
-        try (Connection c = dataSource.getConnection()) {
+        try (Connection c = shards.forDealership(vehicle.getDealershipId()).getConnection()) {
             // this try will handle the vehicle insert query
-            try (PreparedStatement s = c.prepareStatement(insertIntoVehiclesQuery)) {
+            try (PreparedStatement s = c.prepareStatement(INSERT_INTO_VEHICLES_QUERY)) {
 
-                s.setInt(1, vehicle.getVin());
-                s.setInt(2, vehicle.getYear());
-                s.setString(3, vehicle.getMake());
-                s.setString(4, vehicle.getModel());
-                s.setString(5, vehicle.getType());
-                s.setString(6, vehicle.getColor());
-                s.setInt(7, (int) vehicle.getMileage());
-                s.setBigDecimal(8, BigDecimal.valueOf(vehicle.getPrice()));
+                bindVehicleInsert(s, vehicle);
 
                 int rowsAffectedByFirstQuery = s.executeUpdate();
 
                 // add a logging message to communicate with user
                 if (rowsAffectedByFirstQuery > 0) {
+                    addedToVehicles = true;
                     logger.info("✅ Successfully added a new vehicle: {} ✅", vehicle.toFormattedRow());
                 }
 
@@ -635,21 +477,15 @@ public class DealershipDAO {
                 logger.error("❌ Could not add new vehicle to vehicle inventory ❌");
             }
 
-            String insertIntoInventoryQuery = """
-                    insert into car_dealership.inventory (VIN, dealershipID, is_Sold)
-                    values (?, ?, ?)
-                    """;
+            try (PreparedStatement ps = c.prepareStatement(INSERT_INTO_INVENTORY_QUERY)) {
 
-            try (PreparedStatement ps = c.prepareStatement(insertIntoInventoryQuery)) {
-
-                ps.setInt(1, vehicle.getVin());
-                ps.setInt(2, 1);
-                ps.setBoolean(3, false);
+                bindInventoryInsert(ps, vehicle);
 
 
                 int rowsAffectedBySecondQuery = ps.executeUpdate();
 
                 if (rowsAffectedBySecondQuery > 0) {
+                    addedToInventory = true;
                     logger.info("✅ Successfully added a new vehicle to the inventory ✅");
                 }
 
@@ -663,13 +499,161 @@ public class DealershipDAO {
             throw new RuntimeException(e);
         }
 
+        // tell the rest of the application (in-memory store, inventory version...) about the new vehicle
+        if (addedToVehicles && addedToInventory) {
+            inventoryChanges.added(vehicle);
+        }
 
         return vehicle;
     }
 
+    // bulk insert method
+    // reads the vehicles one at a time (they can come straight off an uploaded file) and inserts them
+    // in chunks: each chunk is one batch per table inside one transaction, so thousands of cars cost
+    // a handful of round trips instead of two auto-committed inserts each
+    // if a chunk fails it is rolled back and retried row by row, so the report can name the bad rows
+    // an upload is for one dealership, the given one or the default dealership, and every vehicle goes on its lot
+    public BulkInsertResult addVehicles(Integer dealershipId, Iterator<Vehicle> vehicles) {
+        BulkInsertResult result = new BulkInsertResult();
+        List<Vehicle> chunk = new ArrayList<>(bulkChunkSize);
+        List<Integer> chunkRows = new ArrayList<>(bulkChunkSize);
+        int row = 0;
+        int dealership = dealershipId != null ? dealershipId : shards.getDefaultDealershipId();
+
+        try (Connection c = shards.forDealership(dealership).getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                while (vehicles.hasNext()) {
+                    Vehicle vehicle;
+                    try {
+                        vehicle = vehicles.next();
+                    } catch (RuntimeException e) {
+                        // a row we can't even read ends the upload, everything before it is kept
+                        result.addFailure(row, 0, "Could not read vehicle: " + e.getMessage());
+                        break;
+                    }
+                    result.addReceived();
+
+                    String problem = validateNewVehicle(vehicle);
+                    if (problem != null) {
+                        result.addFailure(row, vehicle == null ? 0 : vehicle.getVin(), problem);
+                    } else {
+                        vehicle.setDealershipId(dealership);
+                        chunk.add(vehicle);
+                        chunkRows.add(row);
+                    }
+                    row++;
+
+                    if (chunk.size() == bulkChunkSize) {
+                        insertChunk(c, chunk, chunkRows, result);
+                        chunk.clear();
+                        chunkRows.clear();
+                    }
+                }
+
+                if (!chunk.isEmpty()) {
+                    insertChunk(c, chunk, chunkRows, result);
+                }
+            } finally {
+                c.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("❌ Could not finish the bulk vehicle upload after {} rows ❌", row);
+            throw new RuntimeException(e);
+        }
+
+        logger.info("✅ Bulk upload added {} of {} vehicles, {} failed ✅",
+                result.getInserted(), result.getReceived(), result.getFailures().size());
+        return result;
+    }
+
+    private void insertChunk(Connection c, List<Vehicle> chunk, List<Integer> chunkRows, BulkInsertResult result)
+            throws SQLException {
+        try (PreparedStatement vehicleInsert = c.prepareStatement(INSERT_INTO_VEHICLES_QUERY);
+             PreparedStatement inventoryInsert = c.prepareStatement(INSERT_INTO_INVENTORY_QUERY)) {
+
+            for (Vehicle vehicle : chunk) {
+                bindVehicleInsert(vehicleInsert, vehicle);
+                vehicleInsert.addBatch();
+                bindInventoryInsert(inventoryInsert, vehicle);
+                inventoryInsert.addBatch();
+            }
+            vehicleInsert.executeBatch();
+            inventoryInsert.executeBatch();
+            c.commit();
+
+            result.addInserted(chunk.size());
+            chunk.forEach(inventoryChanges::added);
+
+        } catch (SQLException e) {
+            c.rollback();
+            logger.warn("❌ A chunk of {} vehicles failed, retrying them one at a time ❌", chunk.size());
+            insertOneByOne(c, chunk, chunkRows, result);
+        }
+    }
+
+    private void insertOneByOne(Connection c, List<Vehicle> chunk, List<Integer> chunkRows, BulkInsertResult result)
+            throws SQLException {
+        for (int i = 0; i < chunk.size(); i++) {
+            Vehicle vehicle = chunk.get(i);
+            try (PreparedStatement vehicleInsert = c.prepareStatement(INSERT_INTO_VEHICLES_QUERY);
+                 PreparedStatement inventoryInsert = c.prepareStatement(INSERT_INTO_INVENTORY_QUERY)) {
+
+                bindVehicleInsert(vehicleInsert, vehicle);
+                vehicleInsert.executeUpdate();
+                bindInventoryInsert(inventoryInsert, vehicle);
+                inventoryInsert.executeUpdate();
+                c.commit();
+
+                result.addInserted(1);
+                inventoryChanges.added(vehicle);
+
+            } catch (SQLException e) {
+                c.rollback();
+                result.addFailure(chunkRows.get(i), vehicle.getVin(), e.getMessage());
+            }
+        }
+    }
+
+    // checks the fields the tables need before we spend a round trip on the row
+    private static String validateNewVehicle(Vehicle vehicle) {
+        if (vehicle == null) return "Vehicle is empty";
+        if (vehicle.getVin() <= 0) return "VIN must be a positive number";
+        if (vehicle.getMake() == null || vehicle.getMake().isBlank()) return "Make is required";
+        if (vehicle.getModel() == null || vehicle.getModel().isBlank()) return "Model is required";
+        if (vehicle.getType() == null || vehicle.getType().isBlank()) return "Vehicle type is required";
+        if (vehicle.getColor() == null || vehicle.getColor().isBlank()) return "Color is required";
+        if (vehicle.getMileage() < 0) return "Mileage cannot be negative";
+        if (vehicle.getPrice() < 0) return "Price cannot be negative";
+        return null;
+    }
+
+    private static void bindVehicleInsert(PreparedStatement s, Vehicle vehicle) throws SQLException {
+        s.setInt(1, vehicle.getVin());
+        s.setInt(2, vehicle.getYear());
+        s.setString(3, vehicle.getMake());
+        s.setString(4, vehicle.getModel());
+        s.setString(5, vehicle.getType());
+        s.setString(6, vehicle.getColor());
+        s.setInt(7, (int) vehicle.getMileage());
+        s.setBigDecimal(8, BigDecimal.valueOf(vehicle.getPrice()));
+    }
+
+    private static void bindInventoryInsert(PreparedStatement s, Vehicle vehicle) throws SQLException {
+        s.setInt(1, vehicle.getVin());
+        s.setInt(2, vehicle.getDealershipId());
+        s.setBoolean(3, false);
+    }
+
     // remove data method
     @Bean
     public Vehicle removeVehicle(int vin) {
+        return removeVehicle(null, vin);
+    }
+
+    // without a dealership the vehicle is looked for in every dealership's database
+    public Vehicle removeVehicle(Integer dealershipId, int vin) {
         // we need to take the given vin and match to a vehicle within the database to remove
         // refactor code to set a helper method to delete from inventory, and vehicles table
         String deleteFromInventoryQuery = """
@@ -677,21 +661,24 @@ public class DealershipDAO {
                     where i.vin = ?
                 """;
 
-        try (Connection c = dataSource.getConnection();
-             PreparedStatement s = c.prepareStatement(deleteFromInventoryQuery)) {
-            s.setInt(1, vin);
-
-            int rowsAffected = s.executeUpdate();
+        int rowsAffected = 0;
+        for (BasicDataSource dataSource : dataSourcesFor(dealershipId)) {
+            try (Connection c = dataSource.getConnection();
+                 PreparedStatement s = c.prepareStatement(deleteFromInventoryQuery)) {
+                s.setInt(1, vin);
 
+                rowsAffected += s.executeUpdate();
 
-            // add a logging message to communicate with user
-            if (rowsAffected > 0) {
-                logger.info("✅ Successfully removed a vehicle from dealership vehicles ✅");
+            } catch (SQLException e) {
+                logger.error("❌ Could not remove vehicle from dealership vehicles ❌");
+                System.out.println(e.getMessage());
             }
+        }
 
-        } catch (SQLException e) {
-            logger.error("❌ Could not remove vehicle from dealership vehicles ❌");
-            System.out.println(e.getMessage());
+        // add a logging message to communicate with user
+        if (rowsAffected > 0) {
+            logger.info("✅ Successfully removed a vehicle from dealership vehicles ✅");
+            inventoryChanges.removed(vin);
         }
         return null;
     }
@@ -699,6 +686,11 @@ public class DealershipDAO {
     // update data method
     @Bean
     public Vehicle updateVehicle(Vehicle vehicle) {
+        return updateVehicle(null, vehicle);
+    }
+
+    // without a dealership (given or on the vehicle) the vehicle is looked for in every dealership's database
+    public Vehicle updateVehicle(Integer dealershipId, Vehicle vehicle) {
 
         String updateVehicleInVehiclesQuery = """
                 update car_dealership.vehicles v
@@ -712,34 +704,55 @@ public class DealershipDAO {
                 where i.VIN = ?
                 """;
 
-        try (Connection c = dataSource.getConnection()) {
-            // prepared statement for first query
-            PreparedStatement s = c.prepareStatement(updateVehicleInVehiclesQuery);
+        if (dealershipId == null && vehicle.getDealershipId() > 0) {
+            dealershipId = vehicle.getDealershipId();
+        }
 
-            s.setInt(1, vehicle.getVin());
-            int rowsAffectedByFirstQuery = s.executeUpdate();
+        for (BasicDataSource dataSource : dataSourcesFor(dealershipId)) {
+            try (Connection c = dataSource.getConnection()) {
+                // prepared statement for first query
+                PreparedStatement s = c.prepareStatement(updateVehicleInVehiclesQuery);
 
-            if (rowsAffectedByFirstQuery > 0) {
-                logger.info("✅ Successfully updated vehicle: {} ✅", vehicle.toFormattedRow());
-            }
+                s.setInt(1, vehicle.getVin());
+                int rowsAffectedByFirstQuery = s.executeUpdate();
 
-            // prepared statement for second query
-            PreparedStatement ps = c.prepareStatement(updateVehicleInInventoryQuery);
+                if (rowsAffectedByFirstQuery > 0) {
+                    logger.info("✅ Successfully updated vehicle: {} ✅", vehicle.toFormattedRow());
+                }
 
-            ps.setInt(1, vehicle.getVin());
+                // prepared statement for second query
+                PreparedStatement ps = c.prepareStatement(updateVehicleInInventoryQuery);
 
-            int rowsAffectedBySecondQuery = ps.executeUpdate();
+                ps.setInt(1, vehicle.getVin());
 
-            if (rowsAffectedBySecondQuery > 0) {
-                logger.info("✅ Successfully updated vehicle in inventory ✅");
-            }
+                int rowsAffectedBySecondQuery = ps.executeUpdate();
 
-        } catch (SQLException e) {
-            logger.error("❌ Could not update vehicle: {} ❌", vehicle.toFormattedRow());
+                if (rowsAffectedBySecondQuery > 0) {
+                    logger.info("✅ Successfully updated vehicle in inventory ✅");
+                    // a sold vehicle drops out of every search
+                    inventoryChanges.sold(vehicle.getVin(), vehicle);
+                }
+
+            } catch (SQLException e) {
+                logger.error("❌ Could not update vehicle: {} ❌", vehicle.toFormattedRow());
+            }
         }
 
         return vehicle;
     }
 
+    // the dealership a new vehicle goes to: the one asked for, else the one on the vehicle, else the default one
+    private int dealershipFor(Integer dealershipId, Vehicle vehicle) {
+        if (dealershipId != null) {
+            return dealershipId;
+        }
+        return vehicle.getDealershipId() > 0 ? vehicle.getDealershipId() : shards.getDefaultDealershipId();
+    }
+
+    // the dealership's database, or every database when we don't know which dealership has the vehicle
+    private List<BasicDataSource> dataSourcesFor(Integer dealershipId) {
+        return dealershipId != null ? List.of(shards.forDealership(dealershipId)) : shards.all();
+    }
+
 }
 
@@ -0,0 +1,368 @@
+package com.pluralsight.dealership.data;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// the component tag tells Spring to keep one connection pool per dealership database (shard)
+// dealership.shards maps dealership ids to database urls, dealerships that share a url share a pool
+// and dealerships that aren't listed stay on datasource.url, so without a map everything runs on one database
+// the DAO sends a dealership's reads and writes to its shard and runs cross-dealership searches on every
+// shard at once, each on its own virtual thread, then merges what comes back
+// each database can also have read replicas (datasource.replicas, dealership.replicas): writes always go to the
+// primary, reads go to a replica that is healthy and caught up (see ReplicatedDatabase), otherwise to the primary
+// a client that just wrote reads from the primaries until the replicas have its write, everyone else isn't held up:
+// the write time is kept in the request and sent back in a cookie for the client's next requests,
+// callers outside a request (the console menu) are one client per thread
+// an answer labelled with the application's inventory version (an ETag, a sync token) is read inside onPrimaries,
+// a replica could still be behind the version on the label
+@Component
+public class DealershipShards {
+    private static final Logger logger = LogManager.getLogger(DealershipShards.class);
+    static final String LAST_WRITE_COOKIE = "last-write";
+    private static final String LAST_WRITE_ATTRIBUTE = DealershipShards.class.getName() + ".lastWrite";
+    private final ReplicatedDatabase defaultDatabase;
+    private final int defaultDealershipId;
+    private final Map<Integer, ReplicatedDatabase> byDealership = new HashMap<>();
+    // every distinct database, the default one first
+    private final List<ReplicatedDatabase> databases = new ArrayList<>();
+    // how long a client's write can keep it on the primaries, the longest a replica may be behind plus the margin
+    private final long readYourWritesMillis;
+    private final ThreadLocal<Long> lastWriteOnThread = new ThreadLocal<>();
+    private final ThreadLocal<Boolean> primariesOnThread = new ThreadLocal<>();
+
+    // both maps are SpEL map literals, e.g. dealership.shards={1:'jdbc:mysql://db-east:3306/car_dealership', 2:'...'}
+    // and dealership.replicas={2:'jdbc:mysql://db-east-replica:3306/car_dealership'}
+    @Autowired
+    public DealershipShards(InstrumentedDataSource dataSource, DatabaseConfig databaseConfig,
+                            @Value("#{${dealership.shards:{:}}}") Map<Integer, String> shardUrls,
+                            @Value("${dealership.default-id:1}") int defaultDealershipId,
+                            @Value("${datasource.replicas:}") String defaultReplicaUrls,
+                            @Value("#{${dealership.replicas:{:}}}") Map<Integer, String> replicaUrls,
+                            @Value("${datasource.replica.max-lag-millis:5000}") long maxLagMillis,
+                            @Value("${datasource.replica.sticky-millis:2000}") long stickyMillis,
+                            @Value("${datasource.replica.check-millis:1000}") long checkMillis) {
+        this(dataSource, databaseConfig.getUrl(), shardUrls, defaultDealershipId,
+                replicasByDatabase(databaseConfig.getUrl(), shardUrls, defaultReplicaUrls, replicaUrls),
+                maxLagMillis, stickyMillis, checkMillis, databaseConfig::createPool);
+    }
+
+    DealershipShards(BasicDataSource defaultPool, String defaultUrl, Map<Integer, String> shardUrls,
+                     int defaultDealershipId, Map<String, List<String>> replicaUrls, long maxLagMillis,
+                     long stickyMillis, long checkMillis, Function<String, ? extends BasicDataSource> createPool) {
+        this.defaultDealershipId = defaultDealershipId;
+        this.readYourWritesMillis = maxLagMillis + stickyMillis;
+
+        Map<String, ReplicatedDatabase> byUrl = new HashMap<>();
+        Function<String, ReplicatedDatabase> database = url -> {
+            List<BasicDataSource> replicas = new ArrayList<>();
+            for (String replicaUrl : replicaUrls.getOrDefault(url, List.of())) {
+                replicas.add(createPool.apply(replicaUrl));
+            }
+            BasicDataSource primary = url.equals(defaultUrl) ? defaultPool : createPool.apply(url);
+            ReplicatedDatabase created = new ReplicatedDatabase(primary, replicas, maxLagMillis, stickyMillis,
+                    checkMillis);
+            databases.add(created);
+            return created;
+        };
+
+        defaultDatabase = byUrl.computeIfAbsent(defaultUrl, database);
+        for (Map.Entry<Integer, String> shard : new TreeMap<>(shardUrls).entrySet()) {
+            byDealership.put(shard.getKey(), byUrl.computeIfAbsent(shard.getValue().trim(), database));
+        }
+        logger.info("✅ {} dealerships mapped onto {} databases with {} read replicas ✅", byDealership.size(),
+                databases.size(), databases.stream().mapToInt(d -> d.replicaPools().size()).sum());
+    }
+
+    // the primary pool of the given dealership's database, every write goes here
+    public BasicDataSource forDealership(int dealershipId) {
+        return database(dealershipId).primary();
+    }
+
+    // a pool to read the given dealership's inventory from, a replica when one is usable
+    public BasicDataSource forReading(int dealershipId) {
+        if (primariesOnThread.get() != null) {
+            return forDealership(dealershipId);
+        }
+        long now = System.currentTimeMillis();
+        return database(dealershipId).forReading(now, callerWroteMillis(now));
+    }
+
+    // the primary pool of every distinct database, the default one first
+    public List<BasicDataSource> all() {
+        List<BasicDataSource> primaries = new ArrayList<>(databases.size());
+        for (ReplicatedDatabase database : databases) {
+            primaries.add(database.primary());
+        }
+        return primaries;
+    }
+
+    // one pool to read from per distinct database, the default one first
+    public List<BasicDataSource> allForReading() {
+        if (primariesOnThread.get() != null) {
+            return all();
+        }
+        long now = System.currentTimeMillis();
+        long callerWrote = callerWroteMillis(now);
+        List<BasicDataSource> pools = new ArrayList<>(databases.size());
+        for (ReplicatedDatabase database : databases) {
+            pools.add(database.forReading(now, callerWrote));
+        }
+        return pools;
+    }
+
+    // runs the read with every forReading and allForReading on this thread answered by the primaries,
+    // they have every write the inventory version counts and a replica may not
+    public <T> T onPrimaries(Supplier<T> read) {
+        if (primariesOnThread.get() != null) {
+            return read.get();
+        }
+        primariesOnThread.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            primariesOnThread.remove();
+        }
+    }
+
+    // true when the pools from forReading or allForReading see every write made through this application so far,
+    // not only the caller's, so what is read from them can be shared with other callers
+    public boolean isCurrent(List<BasicDataSource> pools) {
+        long now = System.currentTimeMillis();
+        for (BasicDataSource pool : pools) {
+            boolean current = false;
+            for (ReplicatedDatabase database : databases) {
+                if (database.isCurrent(pool, now)) {
+                    current = true;
+                    break;
+                }
+            }
+            if (!current) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the dealership that writes without one go to, e.g. vehicles added from the console menu
+    public int getDefaultDealershipId() {
+        return defaultDealershipId;
+    }
+
+    // runs a read query against every database in parallel and concatenates the results in shard order
+    // with a single database it simply runs on the calling thread
+    public <T> List<T> fanOut(Function<BasicDataSource, List<T>> query) {
+        return fanOut(allForReading(), query);
+    }
+
+    // the same on pools picked beforehand with allForReading
+    public <T> List<T> fanOut(List<BasicDataSource> pools, Function<BasicDataSource, List<T>> query) {
+        if (pools.size() == 1) {
+            return query.apply(pools.get(0));
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<T>>> perShard = new ArrayList<>(pools.size());
+            for (BasicDataSource pool : pools) {
+                perShard.add(executor.submit(() -> query.apply(pool)));
+            }
+
+            List<T> merged = new ArrayList<>();
+            for (Future<List<T>> shard : perShard) {
+                merged.addAll(shard.get());
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying the dealership databases", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change, on the writer's thread
+    // the client that wrote reads from the primaries until the replicas have caught up, and the database that was
+    // written to (every database, when the change doesn't say which dealership it was) notes it for isCurrent
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        long now = System.currentTimeMillis();
+        if (change.vehicle() != null && change.vehicle().getDealershipId() > 0) {
+            database(change.vehicle().getDealershipId()).wrote(now);
+        } else {
+            databases.forEach(database -> database.wrote(now));
+        }
+        callerWrote(now);
+    }
+
+    // the scheduled tag has Spring ask every replica how far behind it is this often
+    // the replicas are asked at once, each on its own virtual thread, so one slow replica doesn't delay the others
+    @Scheduled(fixedDelayString = "${datasource.replica.check-millis:1000}")
+    public void checkReplicas() {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (ReplicatedDatabase database : databases) {
+                database.checkReplicas(executor);
+            }
+        }
+    }
+
+    // the numbers of every pool, each database's primary followed by its replicas
+    public List<PoolStats> poolStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (ReplicatedDatabase database : databases) {
+            addStats(stats, database.primary(), "primary");
+            for (BasicDataSource replica : database.replicaPools()) {
+                addStats(stats, replica, "replica");
+            }
+        }
+        return stats;
+    }
+
+    public List<ReplicaStatus> replicaStatus() {
+        long now = System.currentTimeMillis();
+        List<ReplicaStatus> status = new ArrayList<>();
+        for (ReplicatedDatabase database : databases) {
+            status.addAll(database.status(now));
+        }
+        return status;
+    }
+
+    // the pre destroy tag has Spring close the shard and replica pools when the application stops,
+    // the default pool is a bean of its own and Spring closes that one
+    @PreDestroy
+    public void close() {
+        for (ReplicatedDatabase database : databases) {
+            List<BasicDataSource> pools = new ArrayList<>(database.replicaPools());
+            pools.addAll(database.checkPools());
+            if (database != defaultDatabase) {
+                pools.add(database.primary());
+            }
+            for (BasicDataSource pool : pools) {
+                try {
+                    pool.close();
+                } catch (SQLException e) {
+                    logger.warn("❌ Could not close the pool for {} ❌", pool.getUrl());
+                }
+            }
+        }
+    }
+
+    // for tests: what the last health check of a replica of the dealership's database found
+    void record(int dealershipId, int replica, long lagMillis, long nowMillis) {
+        database(dealershipId).record(replica, lagMillis, nowMillis);
+    }
+
+    // helper methods
+    private ReplicatedDatabase database(int dealershipId) {
+        return byDealership.getOrDefault(dealershipId, defaultDatabase);
+    }
+
+    // only the pools made by DatabaseConfig keep numbers
+    private static void addStats(List<PoolStats> stats, BasicDataSource pool, String role) {
+        if (pool instanceof InstrumentedDataSource instrumented) {
+            stats.add(instrumented.stats(role));
+        }
+    }
+
+    // remembers a write for the client that made it, for the rest of its request and in a cookie for the next ones
+    private void callerWrote(long nowMillis) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request)) {
+            lastWriteOnThread.set(nowMillis);
+            return;
+        }
+        request.setAttribute(LAST_WRITE_ATTRIBUTE, nowMillis, RequestAttributes.SCOPE_REQUEST);
+        HttpServletResponse response = request.getResponse();
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        String cookie = ResponseCookie.from(LAST_WRITE_COOKIE, Long.toString(nowMillis))
+                .path("/")
+                .httpOnly(true)
+                .maxAge(Duration.ofMillis(readYourWritesMillis).plusSeconds(1))
+                .build()
+                .toString();
+        // one cookie per response, a bulk upload's later writes replace the earlier ones
+        List<String> others = new ArrayList<>();
+        for (String header : response.getHeaders(HttpHeaders.SET_COOKIE)) {
+            if (!header.startsWith(LAST_WRITE_COOKIE + "=")) {
+                others.add(header);
+            }
+        }
+        response.setHeader(HttpHeaders.SET_COOKIE, cookie);
+        others.forEach(header -> response.addHeader(HttpHeaders.SET_COOKIE, header));
+    }
+
+    // when the client making this call last wrote, a time from its cookie is never taken to be later than now
+    private long callerWroteMillis(long nowMillis) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request)) {
+            Long onThread = lastWriteOnThread.get();
+            return onThread != null ? onThread : ReplicatedDatabase.NEVER;
+        }
+        long wrote = ReplicatedDatabase.NEVER;
+        if (request.getAttribute(LAST_WRITE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long inRequest) {
+            wrote = inRequest;
+        }
+        Cookie[] cookies = request.getRequest().getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                    try {
+                        wrote = Math.max(wrote, Math.min(Long.parseLong(cookie.getValue()), nowMillis));
+                    } catch (NumberFormatException e) {
+                        // not a time we wrote, the client reads like one that hasn't written
+                    }
+                }
+            }
+        }
+        return wrote;
+    }
+
+    // the replica urls of each database url, from the comma separated lists in the properties
+    private static Map<String, List<String>> replicasByDatabase(String defaultUrl, Map<Integer, String> shardUrls,
+                                                                String defaultReplicaUrls, Map<Integer, String> replicaUrls) {
+        Map<String, List<String>> replicas = new HashMap<>();
+        replicas.put(defaultUrl, splitUrls(defaultReplicaUrls));
+        replicaUrls.forEach((dealershipId, urls) ->
+                replicas.put(shardUrls.getOrDefault(dealershipId, defaultUrl).trim(), splitUrls(urls)));
+        return replicas;
+    }
+
+    private static List<String> splitUrls(String urls) {
+        List<String> split = new ArrayList<>();
+        for (String url : urls.split(",")) {
+            if (!url.isBlank()) {
+                split.add(url.trim());
+            }
+        }
+        return split;
+    }
+}
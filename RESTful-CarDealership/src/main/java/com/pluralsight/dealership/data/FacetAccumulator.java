@@ -0,0 +1,139 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleFacets;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// running facet counts and price/mileage totals for one group of vehicles
+// add and remove are O(1), the exception is removing the group's cheapest or dearest vehicle (or lowest or
+// highest mileage): the new min/max can't be known from totals, so the group is marked stale and whoever
+// reads it next rescans its vehicles with resetExtremes() and widen()
+final class FacetAccumulator {
+    private final Map<String, Count> makes = new HashMap<>();
+    private final Map<String, Count> models = new HashMap<>();
+    private final Map<String, Count> colors = new HashMap<>();
+    private final Map<String, Count> types = new HashMap<>();
+    private final Map<Integer, Count> years = new HashMap<>();
+
+    private int count;
+    private double priceTotal;
+    private double mileageTotal;
+    private double minPrice;
+    private double maxPrice;
+    private double minMileage;
+    private double maxMileage;
+    // set by a write when a min/max vehicle leaves, cleared by the read that rescans the group
+    private volatile boolean stale;
+
+    FacetAccumulator() {
+        resetExtremes();
+    }
+
+    void add(Vehicle vehicle) {
+        increment(makes, vehicle.getMake());
+        increment(models, vehicle.getModel());
+        increment(colors, vehicle.getColor());
+        increment(types, vehicle.getType());
+        years.computeIfAbsent(vehicle.getYear(), year -> new Count(null)).count++;
+        count++;
+        priceTotal += vehicle.getPrice();
+        mileageTotal += vehicle.getMileage();
+        widen(vehicle);
+    }
+
+    void remove(Vehicle vehicle) {
+        decrement(makes, key(vehicle.getMake()));
+        decrement(models, key(vehicle.getModel()));
+        decrement(colors, key(vehicle.getColor()));
+        decrement(types, key(vehicle.getType()));
+        decrement(years, vehicle.getYear());
+        count--;
+        if (count == 0) {
+            // start the totals over so rounding errors from earlier removals don't linger
+            priceTotal = 0;
+            mileageTotal = 0;
+            resetExtremes();
+            stale = false;
+            return;
+        }
+        priceTotal -= vehicle.getPrice();
+        mileageTotal -= vehicle.getMileage();
+        if (vehicle.getPrice() == minPrice || vehicle.getPrice() == maxPrice
+                || vehicle.getMileage() == minMileage || vehicle.getMileage() == maxMileage) {
+            stale = true;
+        }
+    }
+
+    boolean isStale() {
+        return stale;
+    }
+
+    void markFresh() {
+        stale = false;
+    }
+
+    int size() {
+        return count;
+    }
+
+    void resetExtremes() {
+        minPrice = Double.POSITIVE_INFINITY;
+        maxPrice = Double.NEGATIVE_INFINITY;
+        minMileage = Double.POSITIVE_INFINITY;
+        maxMileage = Double.NEGATIVE_INFINITY;
+    }
+
+    void widen(Vehicle vehicle) {
+        minPrice = Math.min(minPrice, vehicle.getPrice());
+        maxPrice = Math.max(maxPrice, vehicle.getPrice());
+        minMileage = Math.min(minMileage, vehicle.getMileage());
+        maxMileage = Math.max(maxMileage, vehicle.getMileage());
+    }
+
+    // a copy of the current numbers, labels keep the spelling of the first vehicle seen with that value
+    VehicleFacets snapshot() {
+        Map<Integer, Integer> yearCounts = new TreeMap<>();
+        years.forEach((year, yearCount) -> yearCounts.put(year, yearCount.count));
+        return new VehicleFacets(count, counts(makes), counts(models), counts(colors), counts(types), yearCounts,
+                count == 0 ? null : new VehicleFacets.Range(minPrice, maxPrice, priceTotal / count),
+                count == 0 ? null : new VehicleFacets.Range(minMileage, maxMileage, mileageTotal / count));
+    }
+
+    // helper methods
+    private static void increment(Map<String, Count> counts, String value) {
+        counts.computeIfAbsent(key(value), k -> new Count(value == null ? "" : value.trim())).count++;
+    }
+
+    private static <K> void decrement(Map<K, Count> counts, K key) {
+        Count current = counts.get(key);
+        if (current != null && --current.count == 0) {
+            counts.remove(key);
+        }
+    }
+
+    private static Map<String, Integer> counts(Map<String, Count> counts) {
+        Map<String, Integer> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Count value : counts.values()) {
+            result.put(value.label, value.count);
+        }
+        return result;
+    }
+
+    // the same case-insensitive keys the InventoryStore indexes use
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Count {
+        private final String label;
+        private int count;
+
+        private Count(String label) {
+            this.label = label;
+        }
+    }
+}
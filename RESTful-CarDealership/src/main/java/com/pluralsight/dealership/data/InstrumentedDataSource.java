@@ -0,0 +1,63 @@
+package com.pluralsight.dealership.data;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.DelegatingConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// a BasicDataSource that times every borrow and return so we can tell pool waits apart from MySQL time
+// the DAOs still see a plain BasicDataSource, only the /admin/pool endpoint needs to know about this class
+public class InstrumentedDataSource extends BasicDataSource {
+    private static final Logger logger = LogManager.getLogger(InstrumentedDataSource.class);
+    private final PoolMetrics metrics = new PoolMetrics();
+    private long slowWaitMillis = 250;
+
+    public void setSlowWaitMillis(long slowWaitMillis) {
+        this.slowWaitMillis = slowWaitMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = super.getConnection();
+        } catch (SQLException e) {
+            metrics.recordFailure();
+            throw e;
+        }
+
+        long borrowedAt = System.nanoTime();
+        long waitNanos = borrowedAt - start;
+        metrics.recordBorrow(waitNanos);
+        if (waitNanos / 1_000_000 >= slowWaitMillis) {
+            logger.warn("❌ Waited {} ms for a database connection ({} active, {} idle) ❌",
+                    waitNanos / 1_000_000, getNumActive(), getNumIdle());
+        }
+
+        // closing the wrapper returns the connection to the pool and records how long it was held
+        return new DelegatingConnection<>(connection) {
+            private boolean returned;
+
+            @Override
+            public void close() throws SQLException {
+                if (!returned) {
+                    returned = true;
+                    metrics.recordReturn(System.nanoTime() - borrowedAt);
+                }
+                super.close();
+            }
+        };
+    }
+
+    public PoolStats stats(String role) {
+        double[] waits = metrics.waitPercentiles(50, 95, 99, 100);
+        int waiting = getConnectionPool() == null ? 0 : getConnectionPool().getNumWaiters();
+        return new PoolStats(getUrl(), role, getNumActive(), getNumIdle(), getMaxTotal(), waiting,
+                metrics.getBorrowed(), metrics.getReturned(), metrics.getFailed(),
+                waits[0], waits[1], waits[2], waits[3], metrics.getAverageHoldMillis());
+    }
+}
@@ -0,0 +1,19 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+
+import java.time.Instant;
+
+// published once for every change to the unsold inventory, after the change is committed
+// version is the inventory version the change produced, vehicle is null when only the vin is known
+public record InventoryChangeEvent(Type type, int vin, Vehicle vehicle, long version, Instant timestamp) {
+
+    public enum Type {
+        // a vehicle was put on the lot
+        ADDED,
+        // a vehicle got a sales or lease contract and left the lot
+        SOLD,
+        // a vehicle was taken off the lot without a contract
+        REMOVED
+    }
+}
@@ -0,0 +1,134 @@
+package com.pluralsight.dealership.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+// the component tag tells Spring to keep one log of recent inventory changes for the whole application
+// only the latest change per vin is kept: a vehicle added and then sold is one entry, so the log
+// grows with the number of vehicles touched rather than the number of writes
+// entries stay in version order, so "everything since version N" is a walk back from the newest entry
+@Component
+public class InventoryChangeLog {
+    private static final Logger logger = LogManager.getLogger(InventoryChangeLog.class);
+
+    private final Duration retention;
+    private final int maxEntries;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // vin -> latest change, re-inserted on every change so the newest is always last
+    private final LinkedHashMap<Integer, InventoryChangeEvent> latestByVin = new LinkedHashMap<>();
+
+    // the newest version and time that compaction has thrown away, clients older than this need a full snapshot
+    // the log starts empty on every restart, so the time floor starts at startup: changes from before it are gone
+    // (versions don't need this, a version from before the restart carries another epoch)
+    private long floorVersion;
+    private Instant floorTime = Instant.now();
+
+    public InventoryChangeLog(@Value("${inventory.changes.retention:PT24H}") Duration retention,
+                              @Value("${inventory.changes.max-entries:100000}") int maxEntries) {
+        this.retention = retention;
+        this.maxEntries = maxEntries;
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        lock.writeLock().lock();
+        try {
+            latestByVin.remove(change.vin());
+            latestByVin.put(change.vin(), change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the latest change of every vin changed after the given version, oldest first
+    // null when changes after that version may already have been compacted away
+    public List<InventoryChangeEvent> since(long version) {
+        lock.readLock().lock();
+        try {
+            if (version < floorVersion) {
+                return null;
+            }
+            return newestWhile(change -> change.version() > version);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the same, for changes made after the given time
+    public List<InventoryChangeEvent> since(Instant time) {
+        lock.readLock().lock();
+        try {
+            if (time.isBefore(floorTime)) {
+                return null;
+            }
+            return newestWhile(change -> change.timestamp().isAfter(time));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return latestByVin.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // drops entries older than the retention period, and the oldest entries past max-entries
+    // the scheduled tag has Spring run this in the background every few minutes
+    @Scheduled(fixedDelayString = "${inventory.changes.compact-millis:300000}")
+    public void compact() {
+        Instant cutoff = Instant.now().minus(retention);
+        int dropped = 0;
+
+        lock.writeLock().lock();
+        try {
+            Iterator<InventoryChangeEvent> oldestFirst = latestByVin.values().iterator();
+            while (oldestFirst.hasNext()) {
+                InventoryChangeEvent change = oldestFirst.next();
+                if (latestByVin.size() <= maxEntries && !change.timestamp().isBefore(cutoff)) {
+                    break;
+                }
+                floorVersion = change.version();
+                floorTime = change.timestamp();
+                oldestFirst.remove();
+                dropped++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (dropped > 0) {
+            logger.info("✅ Compacted the inventory change log: dropped {} entries, history now starts after version {} ✅",
+                    dropped, floorVersion);
+        }
+    }
+
+    // helper methods
+    private List<InventoryChangeEvent> newestWhile(Predicate<InventoryChangeEvent> isNewer) {
+        List<InventoryChangeEvent> changes = new ArrayList<>();
+        for (InventoryChangeEvent change : latestByVin.sequencedValues().reversed()) {
+            if (!isNewer.test(change)) {
+                break;
+            }
+            changes.add(change);
+        }
+        return changes.reversed();
+    }
+}
@@ -0,0 +1,65 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// the component tag tells Spring to share one inventory version for the whole application
+// every write path reports its change here: the version goes up by one and an InventoryChangeEvent
+// is published to the @EventListener methods (the in-memory store, caches, feeds...)
+// the version only sees writes made through this application, not rows changed directly in MySQL
+@Component
+public class InventoryChanges {
+    private final ApplicationEventPublisher publisher;
+    private final AtomicLong version = new AtomicLong();
+    // the version starts over on every restart, so the ETag also carries when this process started
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // keeps the version and the order events are delivered in the same
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    @Autowired
+    public InventoryChanges(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // changes every time the application restarts, versions from different epochs can't be compared
+    public String getEpoch() {
+        return epoch;
+    }
+
+    // an HTTP entity tag for the current state of the inventory
+    public String getETag() {
+        return "\"" + epoch + "-" + version.get() + "\"";
+    }
+
+    public void added(Vehicle vehicle) {
+        publish(InventoryChangeEvent.Type.ADDED, vehicle.getVin(), vehicle);
+    }
+
+    public void sold(int vin, Vehicle vehicle) {
+        publish(InventoryChangeEvent.Type.SOLD, vin, vehicle);
+    }
+
+    public void removed(int vin) {
+        publish(InventoryChangeEvent.Type.REMOVED, vin, null);
+    }
+
+    private void publish(InventoryChangeEvent.Type type, int vin, Vehicle vehicle) {
+        publishLock.lock();
+        try {
+            long newVersion = version.incrementAndGet();
+            publisher.publishEvent(new InventoryChangeEvent(type, vin, vehicle, newVersion, Instant.now()));
+        } finally {
+            publishLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleFacets;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// facet counts kept up to date by the InventoryStore on every put and remove
+// besides the whole lot there is one accumulator per make, model, color, type and year, so the common
+// searches (nothing, or a single one of those filters) are answered by copying totals instead of counting
+// any other combination of filters is counted from the matching vehicles
+// writes run under the store's write lock and reads under its read lock, the only thing readers
+// change is the min/max of a stale group, and they take turns on the group to do that
+final class InventoryFacets {
+    private FacetAccumulator all = new FacetAccumulator();
+    private final Map<String, FacetAccumulator> byMake = new HashMap<>();
+    private final Map<String, FacetAccumulator> byModel = new HashMap<>();
+    private final Map<String, FacetAccumulator> byColor = new HashMap<>();
+    private final Map<String, FacetAccumulator> byType = new HashMap<>();
+    private final Map<Integer, FacetAccumulator> byYear = new HashMap<>();
+
+    // the store's own search, used to rescan a group whose min or max vehicle left
+    private final Function<VehicleSearchCriteria, List<Vehicle>> search;
+    // the vehicles at both ends of the store's price and mileage columns, so the whole lot never needs a rescan
+    private final Supplier<List<Vehicle>> extremes;
+
+    InventoryFacets(Function<VehicleSearchCriteria, List<Vehicle>> search, Supplier<List<Vehicle>> extremes) {
+        this.search = search;
+        this.extremes = extremes;
+    }
+
+    void add(Vehicle vehicle) {
+        all.add(vehicle);
+        byMake.computeIfAbsent(key(vehicle.getMake()), k -> new FacetAccumulator()).add(vehicle);
+        byModel.computeIfAbsent(key(vehicle.getModel()), k -> new FacetAccumulator()).add(vehicle);
+        byColor.computeIfAbsent(key(vehicle.getColor()), k -> new FacetAccumulator()).add(vehicle);
+        byType.computeIfAbsent(key(vehicle.getType()), k -> new FacetAccumulator()).add(vehicle);
+        byYear.computeIfAbsent(vehicle.getYear(), k -> new FacetAccumulator()).add(vehicle);
+    }
+
+    // call after the vehicle has left the store's indexes
+    void remove(Vehicle vehicle) {
+        all.remove(vehicle);
+        if (all.isStale()) {
+            // the ends of the store's sorted columns are the new min/max, no rescan needed
+            all.resetExtremes();
+            extremes.get().forEach(all::widen);
+            all.markFresh();
+        }
+        remove(byMake, key(vehicle.getMake()), vehicle);
+        remove(byModel, key(vehicle.getModel()), vehicle);
+        remove(byColor, key(vehicle.getColor()), vehicle);
+        remove(byType, key(vehicle.getType()), vehicle);
+        remove(byYear, vehicle.getYear(), vehicle);
+    }
+
+    void clear() {
+        all = new FacetAccumulator();
+        byMake.clear();
+        byModel.clear();
+        byColor.clear();
+        byType.clear();
+        byYear.clear();
+    }
+
+    // the kept totals when the criteria is exactly one of the groups, otherwise null
+    VehicleFacets lookup(VehicleSearchCriteria criteria) {
+        boolean anyRange = criteria.getMinPrice() != null || criteria.getMaxPrice() != null
+                || criteria.getMinMileage() != null || criteria.getMaxMileage() != null;
+        boolean anyYear = criteria.getMinYear() != null || criteria.getMaxYear() != null;
+        int equalityFilters = (criteria.getMake() != null ? 1 : 0) + (criteria.getModel() != null ? 1 : 0)
+                + (criteria.getColor() != null ? 1 : 0) + (criteria.getType() != null ? 1 : 0);
+        if (criteria.getVin() != null || criteria.getDealershipId() != null || anyRange || equalityFilters > 1 || (anyYear && equalityFilters > 0)) {
+            return null;
+        }
+
+        // the group's own filter, built from its key rather than the caller's spelling of it
+        VehicleSearchCriteria groupFilter = new VehicleSearchCriteria();
+        FacetAccumulator group;
+        if (anyYear) {
+            if (criteria.getMinYear() == null || !criteria.getMinYear().equals(criteria.getMaxYear())) {
+                return null;
+            }
+            group = byYear.get(criteria.getMinYear());
+            groupFilter.setMinYear(criteria.getMinYear());
+            groupFilter.setMaxYear(criteria.getMinYear());
+        } else if (criteria.getMake() != null) {
+            group = byMake.get(key(criteria.getMake()));
+            groupFilter.setMake(key(criteria.getMake()));
+        } else if (criteria.getModel() != null) {
+            group = byModel.get(key(criteria.getModel()));
+            groupFilter.setModel(key(criteria.getModel()));
+        } else if (criteria.getColor() != null) {
+            group = byColor.get(key(criteria.getColor()));
+            groupFilter.setColor(key(criteria.getColor()));
+        } else if (criteria.getType() != null) {
+            group = byType.get(key(criteria.getType()));
+            groupFilter.setType(key(criteria.getType()));
+        } else {
+            group = all;
+        }
+        if (group == null) {
+            return new FacetAccumulator().snapshot();
+        }
+
+        if (group.isStale()) {
+            synchronized (group) {
+                if (group.isStale()) {
+                    List<Vehicle> vehicles = search.apply(groupFilter);
+                    // a rescan that doesn't find every vehicle of the group would leave wrong (or infinite) ends,
+                    // the group then stays stale with its old ones and the next read tries again
+                    if (vehicles.size() == group.size()) {
+                        group.resetExtremes();
+                        vehicles.forEach(group::widen);
+                        group.markFresh();
+                    }
+                }
+            }
+        }
+        return group.snapshot();
+    }
+
+    // helper methods
+    private <K> void remove(Map<K, FacetAccumulator> groups, K key, Vehicle vehicle) {
+        FacetAccumulator group = groups.get(key);
+        if (group == null) {
+            return;
+        }
+        group.remove(vehicle);
+        if (group.size() == 0) {
+            groups.remove(key);
+        }
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
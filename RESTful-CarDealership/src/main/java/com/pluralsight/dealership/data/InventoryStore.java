@@ -0,0 +1,532 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleCursor;
+import com.pluralsight.dealership.models.VehicleFacets;
+import com.pluralsight.dealership.models.VehicleFilter;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.models.VehicleSortKey;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// the component tag tells Spring to keep one in-memory copy of the unsold inventory for the whole application
+// when inventory.store=memory the DealershipDAO answers searches from here instead of going to MySQL
+// every vehicle lives in a numbered slot so the indexes only have to hold small ints
+// the slots hold the store's own vehicles: put keeps a copy and every search hands out copies, so a caller
+// changing what it was given (or what it passed in) can't move a vehicle away from where it is indexed
+// load keeps the vehicles it is given, they come straight from the startup query and nobody else holds them
+@Component
+public class InventoryStore {
+    private static final Logger logger = LogManager.getLogger(InventoryStore.class);
+    // stands in for a value nobody has, never modified
+    private static final RoaringBitmap NONE = new RoaringBitmap();
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Vehicle[] slots = new Vehicle[1024];
+    private int nextSlot;
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<Integer, Integer> slotByVin = new HashMap<>();
+    // the slots in use, what a filter with only exclusions starts from
+    private final RoaringBitmap live = new RoaringBitmap();
+
+    // one compressed bitmap of slots per distinct value, for the equality searches and combined filters
+    // freed slots are handed out again first, so the slot numbers stay dense and the bitmaps stay small
+    // MySQL compares the text columns without case so those keys are lower cased to match
+    private final Map<String, RoaringBitmap> byMake = new HashMap<>();
+    private final Map<String, RoaringBitmap> byModel = new HashMap<>();
+    private final Map<String, RoaringBitmap> byColor = new HashMap<>();
+    private final Map<String, RoaringBitmap> byType = new HashMap<>();
+    private final Map<Integer, RoaringBitmap> byYearValue = new HashMap<>();
+
+    // sorted primitive columns for the range searches
+    private final SortedColumn byPrice = new SortedColumn(this::vinOfSlot);
+    private final SortedColumn byMileage = new SortedColumn(this::vinOfSlot);
+    private final SortedColumn byYear = new SortedColumn(this::vinOfSlot);
+
+    // facet counts and price/mileage statistics, updated with the indexes
+    private final InventoryFacets facets = new InventoryFacets(this::find, this::extremes);
+
+    private volatile boolean loaded;
+
+    // the value comes from the application.properties: sql (default) or memory
+    public InventoryStore(@Value("${inventory.store:sql}") String mode) {
+        this.enabled = "memory".equalsIgnoreCase(mode.trim());
+    }
+
+    // true once the store is switched on and has been loaded, until then the DAO keeps using SQL
+    public boolean isActive() {
+        return enabled && loaded;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // replace the contents of the store with a fresh copy of the unsold inventory
+    public void load(Collection<Vehicle> vehicles) {
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Vehicle vehicle : vehicles) {
+                int slot = allocateSlot(vehicle);
+                indexCategories(vehicle, slot);
+                facets.add(vehicle);
+            }
+
+            // the sorted columns are built in one pass instead of one insert at a time
+            int count = slotByVin.size();
+            double[] prices = new double[count];
+            double[] mileages = new double[count];
+            double[] years = new double[count];
+            int[] slotNumbers = new int[count];
+            int i = 0;
+            for (int slot : slotByVin.values()) {
+                prices[i] = slots[slot].getPrice();
+                mileages[i] = slots[slot].getMileage();
+                years[i] = slots[slot].getYear();
+                slotNumbers[i] = slot;
+                i++;
+            }
+            byPrice.load(prices, slotNumbers, count);
+            byMileage.load(mileages, slotNumbers, count);
+            byYear.load(years, slotNumbers, count);
+            compressRuns();
+
+            loaded = true;
+            logger.info("✅ Loaded {} vehicles into the in-memory inventory store ✅", count);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // add a vehicle, or replace it if the vin is already in the store
+    public void put(Vehicle added) {
+        Vehicle vehicle = added.copy();
+        lock.writeLock().lock();
+        try {
+            removeSlot(vehicle.getVin());
+            int slot = allocateSlot(vehicle);
+            indexCategories(vehicle, slot);
+            byPrice.insert(vehicle.getPrice(), slot);
+            byMileage.insert(vehicle.getMileage(), slot);
+            byYear.insert(vehicle.getYear(), slot);
+            facets.add(vehicle);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int vin) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(vin);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        if (!isActive()) {
+            return;
+        }
+        if (change.type() == InventoryChangeEvent.Type.ADDED) {
+            put(change.vehicle());
+        } else {
+            // sold and removed vehicles both drop out of every search
+            remove(change.vin());
+        }
+    }
+
+    // search methods
+    public Vehicle getByVin(int vin) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByVin.get(vin);
+            return slot == null ? null : slots[slot].copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // answers any combination of filters: the equality filters are AND'ed as bitmaps first
+    // and the rest of the criteria is checked on each remaining candidate
+    public List<Vehicle> search(VehicleSearchCriteria criteria) {
+        return copies(find(criteria));
+    }
+
+    // the search itself, on the store's own vehicles, for the facets and the other searches
+    private List<Vehicle> find(VehicleSearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            List<Vehicle> results = new ArrayList<>();
+            if (criteria.getVin() != null) {
+                Integer slot = slotByVin.get(criteria.getVin());
+                if (slot != null && criteria.matches(slots[slot])) {
+                    results.add(slots[slot]);
+                }
+                return results;
+            }
+
+            RoaringBitmap candidates = equalityMatches(criteria);
+            if (candidates != null) {
+                addMatching(candidates, criteria::matches, results);
+                return results;
+            }
+
+            // no equality filter, so walk the range column that was asked for (or everything)
+            SortedColumn column = byPrice;
+            double min = Double.NEGATIVE_INFINITY;
+            double max = Double.POSITIVE_INFINITY;
+            if (criteria.getMinPrice() != null || criteria.getMaxPrice() != null) {
+                min = criteria.getMinPrice() == null ? min : criteria.getMinPrice();
+                max = criteria.getMaxPrice() == null ? max : criteria.getMaxPrice();
+            } else if (criteria.getMinMileage() != null || criteria.getMaxMileage() != null) {
+                column = byMileage;
+                min = criteria.getMinMileage() == null ? min : criteria.getMinMileage();
+                max = criteria.getMaxMileage() == null ? max : criteria.getMaxMileage();
+            } else if (criteria.getMinYear() != null || criteria.getMaxYear() != null) {
+                column = byYear;
+                min = criteria.getMinYear() == null ? min : criteria.getMinYear();
+                max = criteria.getMaxYear() == null ? max : criteria.getMaxYear();
+            }
+            column.range(min, max, slot -> {
+                if (criteria.matches(slots[slot])) {
+                    results.add(slots[slot]);
+                }
+            });
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the in-memory version of a keyset page: everything after the cursor in sort order, plus one extra
+    // vehicle so the caller can tell whether there is another page
+    public List<Vehicle> searchPage(VehicleSearchCriteria criteria, VehicleSortKey sortKey, boolean descending,
+                                    VehicleCursor cursor, int limit) {
+        return top(criteria, sortKey, descending, cursor, limit + 1);
+    }
+
+    // the first limit matching vehicles in sort order (after the cursor when there is one), e.g. the 10 cheapest SUVs
+    // price, mileage and year are read off their sorted column, which is already in listing order, starting at
+    // the cursor and stopping at the limit-th match, so the cost follows the limit and how rare the matches are
+    // rather than the size of the inventory
+    // when the equality filters leave only a few candidates, those go through a bounded heap instead
+    public List<Vehicle> top(VehicleSearchCriteria criteria, VehicleSortKey sortKey, boolean descending,
+                             VehicleCursor cursor, int limit) {
+        Comparator<Vehicle> order = sortKey.comparator(descending);
+        Predicate<Vehicle> wanted = cursor == null
+                ? criteria::matches
+                : vehicle -> criteria.matches(vehicle) && cursor.isBefore(vehicle);
+
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        if (criteria.getVin() != null) {
+            List<Vehicle> match = find(criteria);
+            match.removeIf(wanted.negate());
+            return copies(match);
+        }
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap candidates = equalityMatches(criteria);
+            SortedColumn column = switch (sortKey) {
+                case PRICE -> byPrice;
+                case MILEAGE -> byMileage;
+                case YEAR -> byYear;
+                case VIN -> null;
+            };
+
+            // walking the column finds about limit * size / candidates vehicles before it can stop,
+            // the heap looks at every candidate once, so pick whichever touches fewer
+            long walked = candidates == null ? limit : (long) limit * slotByVin.size() / Math.max(1, candidates.getCardinality());
+            if (column == null || (candidates != null && candidates.getCardinality() <= walked)) {
+                VehicleHeap heap = new VehicleHeap(order, limit);
+                IntIterator slotNumbers = (candidates == null ? live : candidates).getIntIterator();
+                while (slotNumbers.hasNext()) {
+                    Vehicle vehicle = slots[slotNumbers.next()];
+                    if (wanted.test(vehicle)) {
+                        heap.offer(vehicle);
+                    }
+                }
+                return copies(heap.toSortedList());
+            }
+
+            List<Vehicle> found = new ArrayList<>(limit);
+            double fromValue = cursor != null ? cursor.getValue() : descending ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            int fromVin = cursor != null ? cursor.getVin() : descending ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+            column.walk(fromValue, fromVin, descending, slot -> {
+                if (criteria.matches(slots[slot])) {
+                    found.add(slots[slot]);
+                }
+                return found.size() < limit;
+            });
+            return copies(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // a combined filter such as make=Ford and color in (red, blue) and type=Truck, but not 2015:
+    // the allowed values of each field are OR'ed, the fields AND'ed and the exclusions taken away,
+    // all on bitmaps, so only the vehicles that match are ever looked at
+    public List<Vehicle> filter(VehicleFilter filter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = null;
+            matches = intersect(matches, anyOf(byMake, filter.getMake(), InventoryStore::key));
+            matches = intersect(matches, anyOf(byModel, filter.getModel(), InventoryStore::key));
+            matches = intersect(matches, anyOf(byColor, filter.getColor(), InventoryStore::key));
+            matches = intersect(matches, anyOf(byType, filter.getType(), InventoryStore::key));
+            matches = intersect(matches, anyOf(byYearValue, filter.getYear(), Function.identity()));
+            if (matches == null) {
+                matches = live.clone();
+            }
+
+            exclude(matches, anyOf(byMake, filter.getNotMake(), InventoryStore::key));
+            exclude(matches, anyOf(byModel, filter.getNotModel(), InventoryStore::key));
+            exclude(matches, anyOf(byColor, filter.getNotColor(), InventoryStore::key));
+            exclude(matches, anyOf(byType, filter.getNotType(), InventoryStore::key));
+            exclude(matches, anyOf(byYearValue, filter.getNotYear(), Function.identity()));
+
+            List<Vehicle> results = new ArrayList<>(matches.getCardinality());
+            addMatching(matches, filter::inRange, results);
+            return copies(results);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // counts per make, model, color, type and year plus price and mileage statistics for the matching vehicles
+    // no filter or a single make/model/color/type/year filter is read from the kept totals,
+    // anything else is counted from the search results
+    public VehicleFacets facets(VehicleSearchCriteria criteria) {
+        lock.readLock().lock();
+        try {
+            VehicleFacets kept = facets.lookup(criteria);
+            if (kept != null) {
+                return kept;
+            }
+            FacetAccumulator counted = new FacetAccumulator();
+            for (Vehicle vehicle : find(criteria)) {
+                counted.add(vehicle);
+            }
+            return counted.snapshot();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Vehicle> getAllVehicles() {
+        lock.readLock().lock();
+        try {
+            List<Vehicle> results = new ArrayList<>(slotByVin.size());
+            for (int slot : slotByVin.values()) {
+                results.add(slots[slot].copy());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByVin.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // helper methods
+    // the slots that pass every equality filter (a single year counts as one), or null when none are set
+    // one filter is read straight from its index, several are AND'ed into a new bitmap
+    private RoaringBitmap equalityMatches(VehicleSearchCriteria criteria) {
+        List<RoaringBitmap> filters = new ArrayList<>(5);
+        if (criteria.getMake() != null) filters.add(byMake.getOrDefault(key(criteria.getMake()), NONE));
+        if (criteria.getModel() != null) filters.add(byModel.getOrDefault(key(criteria.getModel()), NONE));
+        if (criteria.getColor() != null) filters.add(byColor.getOrDefault(key(criteria.getColor()), NONE));
+        if (criteria.getType() != null) filters.add(byType.getOrDefault(key(criteria.getType()), NONE));
+        if (criteria.getMinYear() != null && criteria.getMinYear().equals(criteria.getMaxYear())) {
+            filters.add(byYearValue.getOrDefault(criteria.getMinYear(), NONE));
+        }
+        return switch (filters.size()) {
+            case 0 -> null;
+            case 1 -> filters.getFirst();
+            default -> FastAggregation.and(filters.iterator());
+        };
+    }
+
+    // the union of the bitmaps of the given values as a new bitmap, or null when no values are given
+    private static <K, V> RoaringBitmap anyOf(Map<K, RoaringBitmap> index, List<V> values, Function<V, K> key) {
+        if (VehicleFilter.isEmpty(values)) {
+            return null;
+        }
+        List<RoaringBitmap> matches = new ArrayList<>(values.size());
+        for (V value : values) {
+            RoaringBitmap slots = index.get(key.apply(value));
+            if (slots != null) {
+                matches.add(slots);
+            }
+        }
+        return FastAggregation.or(matches.iterator());
+    }
+
+    // both arguments are bitmaps built for this query, so the first can be narrowed in place
+    private static RoaringBitmap intersect(RoaringBitmap matches, RoaringBitmap allowed) {
+        if (allowed == null) {
+            return matches;
+        }
+        if (matches == null) {
+            return allowed;
+        }
+        matches.and(allowed);
+        return matches;
+    }
+
+    private static List<Vehicle> copies(List<Vehicle> vehicles) {
+        List<Vehicle> copies = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            copies.add(vehicle.copy());
+        }
+        return copies;
+    }
+
+    private static void exclude(RoaringBitmap matches, RoaringBitmap excluded) {
+        if (excluded != null) {
+            matches.andNot(excluded);
+        }
+    }
+
+    private void addMatching(RoaringBitmap candidates, Predicate<Vehicle> test, List<Vehicle> results) {
+        IntIterator slotNumbers = candidates.getIntIterator();
+        while (slotNumbers.hasNext()) {
+            Vehicle vehicle = slots[slotNumbers.next()];
+            if (test.test(vehicle)) {
+                results.add(vehicle);
+            }
+        }
+    }
+
+    private int allocateSlot(Vehicle vehicle) {
+        int slot;
+        if (!freeSlots.isEmpty()) {
+            slot = freeSlots.pop();
+        } else {
+            if (nextSlot == slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+            }
+            slot = nextSlot++;
+        }
+        slots[slot] = vehicle;
+        slotByVin.put(vehicle.getVin(), slot);
+        live.add(slot);
+        return slot;
+    }
+
+    private void removeSlot(int vin) {
+        Integer slot = slotByVin.remove(vin);
+        if (slot == null) {
+            return;
+        }
+
+        Vehicle vehicle = slots[slot];
+        unindex(byMake, key(vehicle.getMake()), slot);
+        unindex(byModel, key(vehicle.getModel()), slot);
+        unindex(byColor, key(vehicle.getColor()), slot);
+        unindex(byType, key(vehicle.getType()), slot);
+        unindex(byYearValue, vehicle.getYear(), slot);
+        byPrice.remove(vehicle.getPrice(), slot);
+        byMileage.remove(vehicle.getMileage(), slot);
+        byYear.remove(vehicle.getYear(), slot);
+
+        slots[slot] = null;
+        live.remove(slot);
+        freeSlots.push(slot);
+        facets.remove(vehicle);
+    }
+
+    private void indexCategories(Vehicle vehicle, int slot) {
+        byMake.computeIfAbsent(key(vehicle.getMake()), k -> new RoaringBitmap()).add(slot);
+        byModel.computeIfAbsent(key(vehicle.getModel()), k -> new RoaringBitmap()).add(slot);
+        byColor.computeIfAbsent(key(vehicle.getColor()), k -> new RoaringBitmap()).add(slot);
+        byType.computeIfAbsent(key(vehicle.getType()), k -> new RoaringBitmap()).add(slot);
+        byYearValue.computeIfAbsent(vehicle.getYear(), k -> new RoaringBitmap()).add(slot);
+    }
+
+    private static <K> void unindex(Map<K, RoaringBitmap> index, K key, int slot) {
+        RoaringBitmap matches = index.get(key);
+        if (matches != null) {
+            matches.remove(slot);
+            if (matches.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    // after a bulk load, long stretches of consecutive slots are stored as runs instead of one bit each
+    private void compressRuns() {
+        live.runOptimize();
+        for (Map<?, RoaringBitmap> index : List.of(byMake, byModel, byColor, byType, byYearValue)) {
+            index.values().forEach(RoaringBitmap::runOptimize);
+        }
+    }
+
+    private int vinOfSlot(int slot) {
+        return slots[slot].getVin();
+    }
+
+    // the cheapest, dearest, lowest and highest mileage vehicles
+    private List<Vehicle> extremes() {
+        if (byPrice.size() == 0) {
+            return List.of();
+        }
+        return List.of(slots[byPrice.firstSlot()], slots[byPrice.lastSlot()],
+                slots[byMileage.firstSlot()], slots[byMileage.lastSlot()]);
+    }
+
+    private void clear() {
+        slots = new Vehicle[1024];
+        nextSlot = 0;
+        freeSlots.clear();
+        slotByVin.clear();
+        live.clear();
+        byMake.clear();
+        byModel.clear();
+        byColor.clear();
+        byType.clear();
+        byYearValue.clear();
+        byPrice.clear();
+        byMileage.clear();
+        byYear.clear();
+        facets.clear();
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
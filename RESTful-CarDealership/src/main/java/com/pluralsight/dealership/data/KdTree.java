@@ -0,0 +1,223 @@
+package com.pluralsight.dealership.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+// a 3-dimensional k-d tree of vins, used by the SimilarVehicleIndex for nearest neighbour lookups
+// the tree is implicit: the points are stored in arrays ordered so that the middle of every range is the node
+// splitting that range on axis depth % 3, so there are no node objects and a lookup is a few binary descents
+// k-d trees don't rebalance, so new points wait in a small list that every lookup also scans and removed points
+// are only marked, once either grows past a fraction of the tree it is rebuilt in one O(n log n) pass
+final class KdTree {
+    static final int DIMENSIONS = 3;
+
+    private double[] points = new double[0];
+    private int[] vins = new int[0];
+    private boolean[] removed = new boolean[0];
+    private int removedCount;
+    private final Map<Integer, Integer> positionByVin = new HashMap<>();
+
+    private final List<double[]> pendingPoints = new ArrayList<>();
+    private final List<Integer> pendingVins = new ArrayList<>();
+
+    // replaces the tree with the given points, point i is at coordinates[i * 3 .. i * 3 + 2]
+    void build(int[] newVins, double[] coordinates, int count) {
+        vins = Arrays.copyOf(newVins, count);
+        points = Arrays.copyOf(coordinates, count * DIMENSIONS);
+        removed = new boolean[count];
+        removedCount = 0;
+        pendingPoints.clear();
+        pendingVins.clear();
+        arrange(0, count, 0);
+        positionByVin.clear();
+        for (int i = 0; i < count; i++) {
+            positionByVin.put(vins[i], i);
+        }
+    }
+
+    void add(int vin, double[] point) {
+        remove(vin);
+        pendingPoints.add(point);
+        pendingVins.add(vin);
+        if (pendingVins.size() > Math.max(64, vins.length / 8)) {
+            rebuild();
+        }
+    }
+
+    void remove(int vin) {
+        int pending = pendingVins.indexOf(vin);
+        if (pending >= 0) {
+            pendingPoints.remove(pending);
+            pendingVins.remove(pending);
+            return;
+        }
+        Integer position = positionByVin.remove(vin);
+        if (position != null) {
+            removed[position] = true;
+            removedCount++;
+            if (removedCount > Math.max(64, vins.length / 4)) {
+                rebuild();
+            }
+        }
+    }
+
+    int size() {
+        return vins.length - removedCount + pendingVins.size();
+    }
+
+    // the vins of the k accepted points closest to the query point, closest first, into found[0 .. count - 1]
+    // and their squared distances into distances, returns the count
+    int nearest(double[] query, int k, IntPredicate accepts, int[] found, double[] distances) {
+        if (k <= 0) {
+            return 0;
+        }
+        Neighbours neighbours = new Neighbours(k, accepts, found, distances);
+        search(query, 0, vins.length, 0, neighbours);
+        for (int i = 0; i < pendingVins.size(); i++) {
+            neighbours.offer(pendingVins.get(i), squaredDistance(query, pendingPoints.get(i), 0));
+        }
+        return neighbours.count;
+    }
+
+    // helper methods
+    private void rebuild() {
+        int count = size();
+        int[] liveVins = new int[count];
+        double[] livePoints = new double[count * DIMENSIONS];
+        int next = 0;
+        for (int i = 0; i < vins.length; i++) {
+            if (!removed[i]) {
+                liveVins[next] = vins[i];
+                System.arraycopy(points, i * DIMENSIONS, livePoints, next * DIMENSIONS, DIMENSIONS);
+                next++;
+            }
+        }
+        for (int i = 0; i < pendingVins.size(); i++) {
+            liveVins[next] = pendingVins.get(i);
+            System.arraycopy(pendingPoints.get(i), 0, livePoints, next * DIMENSIONS, DIMENSIONS);
+            next++;
+        }
+        build(liveVins, livePoints, count);
+    }
+
+    // puts the median of [from, to) on the axis in the middle, smaller values before it and larger after,
+    // then does the same for both halves on the next axis
+    private void arrange(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, axis);
+        int next = (axis + 1) % DIMENSIONS;
+        arrange(from, middle, next);
+        arrange(middle + 1, to, next);
+    }
+
+    // quickselect: afterwards position k holds the value it would have if [low, high] were sorted on the axis
+    private void select(int low, int high, int k, int axis) {
+        while (low < high) {
+            double pivot = points[((low + high) >>> 1) * DIMENSIONS + axis];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (points[i * DIMENSIONS + axis] < pivot) i++;
+                while (points[j * DIMENSIONS + axis] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int vin = vins[a];
+        vins[a] = vins[b];
+        vins[b] = vin;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double value = points[a * DIMENSIONS + d];
+            points[a * DIMENSIONS + d] = points[b * DIMENSIONS + d];
+            points[b * DIMENSIONS + d] = value;
+        }
+    }
+
+    // visits the side of the split the query is on first, and the other side only when the splitting plane
+    // is closer than the k-th best distance found so far
+    private void search(double[] query, int from, int to, int axis, Neighbours neighbours) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (!removed[middle]) {
+            neighbours.offer(vins[middle], squaredDistance(query, points, middle * DIMENSIONS));
+        }
+
+        double difference = query[axis] - points[middle * DIMENSIONS + axis];
+        int next = (axis + 1) % DIMENSIONS;
+        if (difference < 0) {
+            search(query, from, middle, next, neighbours);
+            if (difference * difference < neighbours.worst()) {
+                search(query, middle + 1, to, next, neighbours);
+            }
+        } else {
+            search(query, middle + 1, to, next, neighbours);
+            if (difference * difference < neighbours.worst()) {
+                search(query, from, middle, next, neighbours);
+            }
+        }
+    }
+
+    private static double squaredDistance(double[] query, double[] point, int offset) {
+        double sum = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double difference = query[d] - point[offset + d];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    // the k best so far in two arrays kept sorted by distance, k is small so an insertion shift is cheap
+    private static final class Neighbours {
+        private final int k;
+        private final IntPredicate accepts;
+        private final int[] vins;
+        private final double[] distances;
+        private int count;
+
+        private Neighbours(int k, IntPredicate accepts, int[] vins, double[] distances) {
+            this.k = k;
+            this.accepts = accepts;
+            this.vins = vins;
+            this.distances = distances;
+        }
+
+        private double worst() {
+            return count < k ? Double.POSITIVE_INFINITY : distances[count - 1];
+        }
+
+        private void offer(int vin, double distance) {
+            if (distance >= worst() || !accepts.test(vin)) {
+                return;
+            }
+            int position = Math.min(count, k - 1);
+            while (position > 0 && distances[position - 1] > distance) {
+                vins[position] = vins[position - 1];
+                distances[position] = distances[position - 1];
+                position--;
+            }
+            vins[position] = vin;
+            distances[position] = distance;
+            count = Math.min(count + 1, k);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.pluralsight.dealership.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// counters for the connection pool: how many connections were borrowed and returned,
+// how long callers waited for one and how long they held on to it
+// wait times are kept in a ring of the most recent samples so percentiles reflect current load
+class PoolMetrics {
+    private static final int SAMPLE_SIZE = 4096;
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder heldNanos = new LongAdder();
+    private final long[] waitSamples = new long[SAMPLE_SIZE];
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    void recordBorrow(long waitNanos) {
+        borrowed.increment();
+        long index = sampleCount.getAndIncrement();
+        waitSamples[(int) (index % SAMPLE_SIZE)] = waitNanos;
+    }
+
+    void recordReturn(long heldForNanos) {
+        returned.increment();
+        heldNanos.add(heldForNanos);
+    }
+
+    void recordFailure() {
+        failed.increment();
+    }
+
+    long getBorrowed() {
+        return borrowed.sum();
+    }
+
+    long getReturned() {
+        return returned.sum();
+    }
+
+    long getFailed() {
+        return failed.sum();
+    }
+
+    double getAverageHoldMillis() {
+        long count = returned.sum();
+        return count == 0 ? 0 : heldNanos.sum() / (double) count / 1_000_000;
+    }
+
+    // percentiles of the recent wait times in milliseconds, e.g. waitPercentiles(50, 95, 99)
+    double[] waitPercentiles(double... percentiles) {
+        int count = (int) Math.min(sampleCount.get(), SAMPLE_SIZE);
+        long[] sorted = Arrays.copyOf(waitSamples, count);
+        Arrays.sort(sorted);
+
+        double[] results = new double[percentiles.length];
+        for (int i = 0; i < percentiles.length && count > 0; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100 * count) - 1;
+            results[i] = sorted[Math.max(0, Math.min(rank, count - 1))] / 1_000_000.0;
+        }
+        return results;
+    }
+}
@@ -0,0 +1,19 @@
+package com.pluralsight.dealership.data;
+
+// a snapshot of one connection pool for the /admin/pool endpoint
+// role is primary or replica, times are in milliseconds
+public record PoolStats(String url,
+                        String role,
+                        int active,
+                        int idle,
+                        int maxTotal,
+                        int waiting,
+                        long borrowed,
+                        long returned,
+                        long borrowFailures,
+                        double waitP50,
+                        double waitP95,
+                        double waitP99,
+                        double waitMax,
+                        double averageHold) {
+}
@@ -0,0 +1,171 @@
+package com.pluralsight.dealership.data;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// a compact (radix) trie from lower cased keys to values, used by the VehicleTermIndex for autocomplete
+// chains of single-child nodes are merged into one edge, so the trie has at most two nodes per key,
+// and each node keeps its children's first letters in a sorted char array for a binary search per step
+final class PrefixTrie<V> {
+    private static final char[] NO_LETTERS = new char[0];
+    private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+
+    private final Node<V> root = new Node<>("");
+    private int size;
+
+    void put(String key, V value) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < key.length()) {
+            int position = node.find(key.charAt(i));
+            if (position < 0) {
+                Node<V> leaf = new Node<>(key.substring(i));
+                leaf.value = value;
+                node.insertChild(-position - 1, leaf);
+                size++;
+                return;
+            }
+
+            Node<V> child = node.children[position];
+            int common = commonLength(child.edge, key, i);
+            if (common < child.edge.length()) {
+                // the key leaves this edge part way along, so split the edge where they differ
+                Node<V> split = new Node<>(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                split.insertChild(0, child);
+                node.children[position] = split;
+                child = split;
+            }
+            node = child;
+            i += common;
+        }
+        if (node.value == null) {
+            size++;
+        }
+        node.value = value;
+    }
+
+    void remove(String key) {
+        if (remove(root, key, 0)) {
+            size--;
+        }
+    }
+
+    // hands the value of every key starting with the prefix to the consumer, nothing is allocated along the way
+    void forEachWithPrefix(String prefix, Consumer<V> consumer) {
+        Node<V> node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int position = node.find(prefix.charAt(i));
+            if (position < 0) {
+                return;
+            }
+            node = node.children[position];
+            int compared = Math.min(node.edge.length(), prefix.length() - i);
+            if (!node.edge.regionMatches(0, prefix, i, compared)) {
+                return;
+            }
+            i += node.edge.length();
+        }
+        visit(node, consumer);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        root.letters = NO_LETTERS;
+        root.children = emptyChildren();
+        root.value = null;
+        size = 0;
+    }
+
+    // helper methods
+    // true when the key was found, the nodes it leaves empty are dropped and single children merged back
+    private boolean remove(Node<V> node, String key, int i) {
+        if (i == key.length()) {
+            boolean found = node.value != null;
+            node.value = null;
+            return found;
+        }
+        int position = node.find(key.charAt(i));
+        if (position < 0) {
+            return false;
+        }
+        Node<V> child = node.children[position];
+        if (!key.startsWith(child.edge, i) || !remove(child, key, i + child.edge.length())) {
+            return false;
+        }
+
+        if (child.value == null && child.children.length == 0) {
+            node.removeChild(position);
+        } else if (child.value == null && child.children.length == 1) {
+            Node<V> grandchild = child.children[0];
+            grandchild.edge = child.edge + grandchild.edge;
+            node.children[position] = grandchild;
+        }
+        return true;
+    }
+
+    private void visit(Node<V> node, Consumer<V> consumer) {
+        if (node.value != null) {
+            consumer.accept(node.value);
+        }
+        for (Node<V> child : node.children) {
+            visit(child, consumer);
+        }
+    }
+
+    private static int commonLength(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int common = 0;
+        while (common < max && edge.charAt(common) == key.charAt(offset + common)) {
+            common++;
+        }
+        return common;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Node<V>[] emptyChildren() {
+        return (Node<V>[]) NO_CHILDREN;
+    }
+
+    private static final class Node<V> {
+        private String edge;
+        private char[] letters = NO_LETTERS;
+        private Node<V>[] children = emptyChildren();
+        private V value;
+
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        // index of the child whose edge starts with the letter, or -(insertion point) - 1
+        private int find(char letter) {
+            return Arrays.binarySearch(letters, letter);
+        }
+
+        private void insertChild(int position, Node<V> child) {
+            char[] newLetters = new char[letters.length + 1];
+            Node<V>[] newChildren = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(letters, 0, newLetters, 0, position);
+            System.arraycopy(letters, position, newLetters, position + 1, letters.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            newLetters[position] = child.edge.charAt(0);
+            newChildren[position] = child;
+            letters = newLetters;
+            children = newChildren;
+        }
+
+        private void removeChild(int position) {
+            char[] newLetters = new char[letters.length - 1];
+            Node<V>[] newChildren = Arrays.copyOf(children, children.length - 1);
+            System.arraycopy(letters, 0, newLetters, 0, position);
+            System.arraycopy(letters, position + 1, newLetters, position, letters.length - position - 1);
+            System.arraycopy(children, position + 1, newChildren, position, children.length - position - 1);
+            letters = newLetters;
+            children = newChildren;
+        }
+    }
+}
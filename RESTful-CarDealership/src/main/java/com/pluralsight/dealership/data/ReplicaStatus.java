@@ -0,0 +1,10 @@
+package com.pluralsight.dealership.data;
+
+// one read replica as of its last health check, for the /admin/replicas endpoint
+// lagMillis is how far behind its primary it said it was, -1 when it couldn't say or said it too long ago
+public record ReplicaStatus(String primaryUrl,
+                            String url,
+                            boolean healthy,
+                            long lagMillis,
+                            long checkedAtMillis) {
+}
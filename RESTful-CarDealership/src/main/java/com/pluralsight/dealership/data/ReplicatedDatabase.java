@@ -0,0 +1,203 @@
+package com.pluralsight.dealership.data;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// one database as DealershipShards sees it: the primary pool every write goes to and the replica pools
+// its reads are spread over, round robin
+// a replica is only read from while its last health check passed, it is at most maxLagMillis behind,
+// and the caller's own last write is older than the replica's lag plus stickyMillis, so whoever just
+// wrote reads it back from the primary rather than from a replica that hasn't caught up yet,
+// while everyone else keeps reading from the replicas
+// MySQL reports the lag in whole seconds as of the last check, stickyMillis covers that rounding
+// a check older than maxLagMillis plus checkMillis says nothing about the replica now (the checks stopped,
+// or one is stuck), so the replica counts as failed until a check answers again
+// each replica is checked on a connection of its own with connect and socket timeouts, so a replica that is
+// down or hung fails its check in seconds instead of holding up the others
+final class ReplicatedDatabase {
+    private static final Logger logger = LogManager.getLogger(ReplicatedDatabase.class);
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+    // the last write time of a caller that hasn't written, far enough back that subtracting it can't overflow
+    static final long NEVER = Long.MIN_VALUE / 2;
+
+    private final BasicDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMillis;
+    private final long stickyMillis;
+    private final long checkMillis;
+    // the last write by anyone, it doesn't route reads, it only tells whether a replica has every write (isCurrent)
+    private final AtomicLong lastWriteMillis = new AtomicLong(NEVER);
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    ReplicatedDatabase(BasicDataSource primary, List<? extends BasicDataSource> replicaPools,
+                       long maxLagMillis, long stickyMillis, long checkMillis) {
+        this.primary = primary;
+        this.maxLagMillis = maxLagMillis;
+        this.stickyMillis = stickyMillis;
+        this.checkMillis = checkMillis;
+        for (BasicDataSource pool : replicaPools) {
+            replicas.add(new Replica(pool));
+        }
+    }
+
+    BasicDataSource primary() {
+        return primary;
+    }
+
+    List<BasicDataSource> replicaPools() {
+        List<BasicDataSource> pools = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            pools.add(replica.pool);
+        }
+        return pools;
+    }
+
+    // the one-connection pools the health checks run on
+    List<BasicDataSource> checkPools() {
+        List<BasicDataSource> pools = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            pools.add(replica.checkPool);
+        }
+        return pools;
+    }
+
+    // the next replica that is healthy, close enough and has the caller's last write, or the primary when none is
+    BasicDataSource forReading(long nowMillis, long callerWroteMillis) {
+        int count = replicas.size();
+        if (count == 0) {
+            return primary;
+        }
+        long sinceWrite = nowMillis - callerWroteMillis;
+        int start = Math.floorMod(nextReplica.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            long lag = lag(replica, nowMillis);
+            if (lag >= 0 && lag <= maxLagMillis && sinceWrite >= lag + stickyMillis) {
+                return replica.pool;
+            }
+        }
+        return primary;
+    }
+
+    // called once a write to this database is committed
+    void wrote(long nowMillis) {
+        lastWriteMillis.accumulateAndGet(nowMillis, Math::max);
+    }
+
+    // true when reading from the pool now sees every write made to this database so far, not just the caller's,
+    // false for a pool that isn't this database's
+    boolean isCurrent(BasicDataSource pool, long nowMillis) {
+        if (pool == primary) {
+            return true;
+        }
+        long sinceWrite = nowMillis - lastWriteMillis.get();
+        for (Replica replica : replicas) {
+            if (replica.pool == pool) {
+                long lag = lag(replica, nowMillis);
+                return lag >= 0 && sinceWrite >= lag + stickyMillis;
+            }
+        }
+        return false;
+    }
+
+    // asks every replica how far behind its primary it is, each on its own task of the executor
+    void checkReplicas(ExecutorService executor) {
+        for (Replica replica : replicas) {
+            executor.execute(() -> {
+                long lag = measureLag(replica.checkPool);
+                replica.record(lag, System.currentTimeMillis());
+            });
+        }
+    }
+
+    List<ReplicaStatus> status(long nowMillis) {
+        List<ReplicaStatus> status = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            long lag = lag(replica, nowMillis);
+            status.add(new ReplicaStatus(primary.getUrl(), replica.pool.getUrl(), lag >= 0 && lag <= maxLagMillis,
+                    lag, replica.checkedAtMillis));
+        }
+        return status;
+    }
+
+    // for tests: what the last health check of the replica at this position found, -1 for a failed check
+    void record(int replica, long lagMillis, long nowMillis) {
+        replicas.get(replica).record(lagMillis, nowMillis);
+    }
+
+    // what the replica's last check found, -1 when that check failed or is too old to go by
+    private long lag(Replica replica, long nowMillis) {
+        if (nowMillis - replica.checkedAtMillis > maxLagMillis + checkMillis) {
+            return -1;
+        }
+        return replica.lagMillis;
+    }
+
+    // the replica's own Seconds_Behind_Source, -1 when it can't be reached or isn't replicating
+    // (show replica status needs MySQL 8.0.22 or later)
+    private static long measureLag(BasicDataSource pool) {
+        try (Connection c = pool.getConnection();
+             Statement s = c.createStatement()) {
+            s.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+            try (ResultSet status = s.executeQuery("show replica status")) {
+                if (!status.next()) {
+                    return -1;
+                }
+                long seconds = status.getLong("Seconds_Behind_Source");
+                return status.wasNull() ? -1 : seconds * 1000;
+            }
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    // the pool the checks of a replica run on: one connection that gives up on connecting or on an answer
+    // after the check timeout (Connector/J's connectTimeout and socketTimeout, in milliseconds)
+    private static BasicDataSource checkPool(BasicDataSource replica) {
+        BasicDataSource check = new BasicDataSource();
+        check.setUrl(replica.getUrl());
+        check.setUsername(replica.getUsername());
+        check.setPassword(replica.getPassword());
+        check.setMaxTotal(1);
+        check.setMaxWaitMillis(CHECK_TIMEOUT_SECONDS * 1000L);
+        check.setConnectionProperties("connectTimeout=" + CHECK_TIMEOUT_SECONDS * 1000 + ";socketTimeout="
+                + CHECK_TIMEOUT_SECONDS * 1000);
+        return check;
+    }
+
+    // a replica pool and what its last health check found, read without locking by the request threads
+    private static final class Replica {
+        private final BasicDataSource pool;
+        private final BasicDataSource checkPool;
+        // unknown until the first check, so nothing is read from a replica before it has answered
+        private volatile long lagMillis = -1;
+        private volatile long checkedAtMillis;
+
+        private Replica(BasicDataSource pool) {
+            this.pool = pool;
+            this.checkPool = checkPool(pool);
+        }
+
+        private void record(long lag, long nowMillis) {
+            boolean wasHealthy = lagMillis >= 0;
+            lagMillis = lag;
+            checkedAtMillis = nowMillis;
+            if (wasHealthy && lag < 0) {
+                logger.warn("❌ Replica {} failed its health check, reading from the primary instead ❌", pool.getUrl());
+            } else if (!wasHealthy && lag >= 0) {
+                logger.info("✅ Replica {} is replicating, {} ms behind ✅", pool.getUrl(), lag);
+            }
+        }
+    }
+}
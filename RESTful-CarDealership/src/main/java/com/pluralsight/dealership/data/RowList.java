@@ -0,0 +1,25 @@
+package com.pluralsight.dealership.data;
+
+import java.util.Arrays;
+
+// the row numbers a column scan matched, in a primitive array that grows with the matches
+// instead of one sized for the whole inventory, so a selective filter allocates next to nothing
+final class RowList {
+    private int[] rows = new int[64];
+    private int size;
+
+    void add(int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        rows[size++] = row;
+    }
+
+    int get(int index) {
+        return rows[index];
+    }
+
+    int size() {
+        return size;
+    }
+}
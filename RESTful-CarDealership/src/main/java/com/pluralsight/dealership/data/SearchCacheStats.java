@@ -0,0 +1,14 @@
+package com.pluralsight.dealership.data;
+
+// a snapshot of the search result cache for the /admin/cache endpoint
+// weight is the number of cached vehicles plus one per entry
+public record SearchCacheStats(long hits,
+                               long misses,
+                               double hitRate,
+                               long evictions,
+                               long invalidations,
+                               int entries,
+                               long weight,
+                               int maxEntries,
+                               long maxWeight) {
+}
@@ -0,0 +1,206 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+
+// the component tag tells Spring to keep one cache of recent search results from the database
+// searches are keyed by their filters with the text trimmed and lower cased like the in-memory store's keys,
+// so "Toyota", "TOYOTA" and "Toyota " share an entry, and the least recently used entries are dropped once there are
+// more than max-entries of them or they hold more than max-weight vehicles between them
+// an entry is dropped as soon as a change could alter it: a new vehicle its filters match, or a sold or removed
+// vehicle it lists, so a hit is always what the database would have answered
+// changes made by other processes writing to the same database aren't seen, like with the in-memory store
+@Component
+public class SearchResultCache {
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxWeight;
+
+    // the access order map keeps the least recently used entry first, every get reorders it, hence one plain lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<SearchKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    // the latest inventory version seen, results from before it may have missed that change
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    @Autowired
+    public SearchResultCache(@Value("${inventory.cache.enabled:true}") boolean enabled,
+                             @Value("${inventory.cache.max-entries:1000}") int maxEntries,
+                             @Value("${inventory.cache.max-weight:100000}") long maxWeight) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // the cached results for the criteria, null on a miss
+    // every hit gets its own copies, a caller marking a vehicle as under contract doesn't change anyone else's
+    public List<Vehicle> get(VehicleSearchCriteria criteria) {
+        SearchKey key = SearchKey.of(criteria);
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        } finally {
+            lock.unlock();
+        }
+        return copies(entry.vehicles);
+    }
+
+    // keeps the results of a search that started at the given inventory version
+    // skipped when the inventory changed while the search ran, the change may have come too late for the query
+    // but too early to invalidate it
+    public void put(VehicleSearchCriteria criteria, List<Vehicle> vehicles, long startedAtVersion) {
+        long entryWeight = 1L + vehicles.size();
+        if (entryWeight > maxWeight || maxEntries <= 0) {
+            return;
+        }
+        SearchKey key = SearchKey.of(criteria);
+        // the caller keeps using the vehicles it passed in, the cache keeps copies nobody else can reach
+        Entry entry = new Entry(key, copies(vehicles));
+
+        lock.lock();
+        try {
+            if (startedAtVersion < version) {
+                return;
+            }
+            Entry replaced = entries.put(key, entry);
+            if (replaced != null) {
+                weight -= replaced.weight();
+            }
+            weight += entry.weight();
+
+            Iterator<Entry> oldestFirst = entries.values().iterator();
+            while ((entries.size() > maxEntries || weight > maxWeight) && oldestFirst.hasNext()) {
+                weight -= oldestFirst.next().weight();
+                oldestFirst.remove();
+                evictions++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        lock.lock();
+        try {
+            version = Math.max(version, change.version());
+            Iterator<Entry> all = entries.values().iterator();
+            while (all.hasNext()) {
+                Entry entry = all.next();
+                if (entry.affectedBy(change)) {
+                    weight -= entry.weight();
+                    all.remove();
+                    invalidations++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SearchCacheStats stats() {
+        lock.lock();
+        try {
+            long lookups = hits + misses;
+            return new SearchCacheStats(hits, misses, lookups == 0 ? 0 : (double) hits / lookups, evictions,
+                    invalidations, entries.size(), weight, maxEntries, maxWeight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static List<Vehicle> copies(List<Vehicle> vehicles) {
+        List<Vehicle> copies = new ArrayList<>(vehicles.size());
+        for (Vehicle vehicle : vehicles) {
+            copies.add(vehicle.copy());
+        }
+        return copies;
+    }
+
+    // the normalized form of a search, two searches with equal keys get the same rows from MySQL
+    record SearchKey(Integer vin, String make, String model, String color, String type,
+                     Double minPrice, Double maxPrice, Integer minYear, Integer maxYear,
+                     Double minMileage, Double maxMileage, Integer dealershipId) {
+
+        static SearchKey of(VehicleSearchCriteria criteria) {
+            return new SearchKey(criteria.getVin(), normalize(criteria.getMake()), normalize(criteria.getModel()),
+                    normalize(criteria.getColor()), normalize(criteria.getType()),
+                    criteria.getMinPrice(), criteria.getMaxPrice(), criteria.getMinYear(), criteria.getMaxYear(),
+                    criteria.getMinMileage(), criteria.getMaxMileage(), criteria.getDealershipId());
+        }
+
+        VehicleSearchCriteria toCriteria() {
+            VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+            criteria.setVin(vin);
+            criteria.setMake(make);
+            criteria.setModel(model);
+            criteria.setColor(color);
+            criteria.setType(type);
+            criteria.setMinPrice(minPrice);
+            criteria.setMaxPrice(maxPrice);
+            criteria.setMinYear(minYear);
+            criteria.setMaxYear(maxYear);
+            criteria.setMinMileage(minMileage);
+            criteria.setMaxMileage(maxMileage);
+            criteria.setDealershipId(dealershipId);
+            return criteria;
+        }
+
+        private static String normalize(String value) {
+            return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // the results of one search, with their vins sorted so an invalidation can binary search them
+    private static final class Entry {
+        private final VehicleSearchCriteria criteria;
+        private final List<Vehicle> vehicles;
+        private final int[] vins;
+
+        private Entry(SearchKey key, List<Vehicle> vehicles) {
+            this.criteria = key.toCriteria();
+            this.vehicles = vehicles;
+            this.vins = vehicles.stream().mapToInt(Vehicle::getVin).sorted().toArray();
+        }
+
+        private long weight() {
+            return 1L + vehicles.size();
+        }
+
+        // a listed vehicle that changed, or a new vehicle the search would find
+        private boolean affectedBy(InventoryChangeEvent change) {
+            if (Arrays.binarySearch(vins, change.vin()) >= 0) {
+                return true;
+            }
+            return change.type() == InventoryChangeEvent.Type.ADDED && change.vehicle() != null
+                    && criteria.matches(change.vehicle());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.SimilarVehicle;
+import com.pluralsight.dealership.models.Vehicle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+// the component tag tells Spring to keep one "similar cars" index of the unsold inventory
+// every vehicle is a point (year, mileage, price), each divided by its scale so that one year, one mileage-scale
+// and one price-scale apart count the same, and the closest points are found in a k-d tree
+// besides the tree over everything there is one per make and one per type, so "similar SUVs" searches
+// only the SUVs instead of skipping past every other vehicle
+@Component
+public class SimilarVehicleIndex {
+    private final double yearScale;
+    private final double mileageScale;
+    private final double priceScale;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Vehicle> vehicles = new HashMap<>();
+    private final KdTree all = new KdTree();
+    // make and type are compared without case like MySQL does, so the keys are lower cased
+    private final Map<String, KdTree> byMake = new HashMap<>();
+    private final Map<String, KdTree> byType = new HashMap<>();
+
+    @Autowired
+    public SimilarVehicleIndex(@Value("${inventory.similar.year-scale:2}") double yearScale,
+                               @Value("${inventory.similar.mileage-scale:20000}") double mileageScale,
+                               @Value("${inventory.similar.price-scale:5000}") double priceScale) {
+        this.yearScale = yearScale;
+        this.mileageScale = mileageScale;
+        this.priceScale = priceScale;
+    }
+
+    // replace the contents of the index, each tree is built in one pass
+    public void load(Collection<Vehicle> loaded) {
+        lock.writeLock().lock();
+        try {
+            vehicles.clear();
+            byMake.clear();
+            byType.clear();
+            Map<String, List<Vehicle>> makes = new HashMap<>();
+            Map<String, List<Vehicle>> types = new HashMap<>();
+            for (Vehicle vehicle : loaded) {
+                vehicles.put(vehicle.getVin(), vehicle);
+            }
+            for (Vehicle vehicle : vehicles.values()) {
+                makes.computeIfAbsent(key(vehicle.getMake()), k -> new ArrayList<>()).add(vehicle);
+                types.computeIfAbsent(key(vehicle.getType()), k -> new ArrayList<>()).add(vehicle);
+            }
+            build(all, vehicles.values());
+            makes.forEach((make, group) -> build(byMake.computeIfAbsent(make, k -> new KdTree()), group));
+            types.forEach((type, group) -> build(byType.computeIfAbsent(type, k -> new KdTree()), group));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(Vehicle vehicle) {
+        lock.writeLock().lock();
+        try {
+            removeVehicle(vehicle.getVin());
+            double[] point = point(vehicle);
+            vehicles.put(vehicle.getVin(), vehicle);
+            all.add(vehicle.getVin(), point);
+            byMake.computeIfAbsent(key(vehicle.getMake()), k -> new KdTree()).add(vehicle.getVin(), point);
+            byType.computeIfAbsent(key(vehicle.getType()), k -> new KdTree()).add(vehicle.getVin(), point);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int vin) {
+        lock.writeLock().lock();
+        try {
+            removeVehicle(vin);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        if (change.type() == InventoryChangeEvent.Type.ADDED) {
+            add(change.vehicle());
+        } else {
+            remove(change.vin());
+        }
+    }
+
+    // the vehicles closest to the given one, closest first, optionally only of one make and/or type
+    // null when the vin isn't in the unsold inventory
+    public List<SimilarVehicle> similar(int vin, String requestedMake, String requestedType, int limit) {
+        String make = requestedMake == null || requestedMake.isBlank() ? null : requestedMake.trim();
+        String type = requestedType == null || requestedType.isBlank() ? null : requestedType.trim();
+        lock.readLock().lock();
+        try {
+            Vehicle target = vehicles.get(vin);
+            if (target == null) {
+                return null;
+            }
+
+            // search the smaller of the two constrained trees and check the other constraint on the way
+            KdTree tree = all;
+            IntPredicate accepts = other -> other != vin;
+            if (make != null && type != null) {
+                KdTree makes = byMake.get(key(make));
+                KdTree types = byType.get(key(type));
+                if (makes == null || types == null) {
+                    return List.of();
+                }
+                boolean makesSmaller = makes.size() <= types.size();
+                tree = makesSmaller ? makes : types;
+                accepts = makesSmaller
+                        ? other -> other != vin && type.equalsIgnoreCase(vehicles.get(other).getType())
+                        : other -> other != vin && make.equalsIgnoreCase(vehicles.get(other).getMake());
+            } else if (make != null || type != null) {
+                tree = make != null ? byMake.get(key(make)) : byType.get(key(type));
+                if (tree == null) {
+                    return List.of();
+                }
+            }
+
+            int[] found = new int[limit];
+            double[] distances = new double[limit];
+            int count = tree.nearest(point(target), limit, accepts, found, distances);
+            List<SimilarVehicle> similar = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                similar.add(new SimilarVehicle(vehicles.get(found[i]), Math.sqrt(distances[i])));
+            }
+            return similar;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vehicles.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // helper methods
+    private void build(KdTree tree, Collection<Vehicle> group) {
+        int[] vins = new int[group.size()];
+        double[] coordinates = new double[group.size() * KdTree.DIMENSIONS];
+        int i = 0;
+        for (Vehicle vehicle : group) {
+            vins[i] = vehicle.getVin();
+            System.arraycopy(point(vehicle), 0, coordinates, i * KdTree.DIMENSIONS, KdTree.DIMENSIONS);
+            i++;
+        }
+        tree.build(vins, coordinates, vins.length);
+    }
+
+    private void removeVehicle(int vin) {
+        Vehicle vehicle = vehicles.remove(vin);
+        if (vehicle == null) {
+            return;
+        }
+        all.remove(vin);
+        removeFrom(byMake, key(vehicle.getMake()), vin);
+        removeFrom(byType, key(vehicle.getType()), vin);
+    }
+
+    private static void removeFrom(Map<String, KdTree> trees, String key, int vin) {
+        KdTree tree = trees.get(key);
+        if (tree != null) {
+            tree.remove(vin);
+            if (tree.size() == 0) {
+                trees.remove(key);
+            }
+        }
+    }
+
+    private double[] point(Vehicle vehicle) {
+        return new double[]{vehicle.getYear() / yearScale, vehicle.getMileage() / mileageScale, vehicle.getPrice() / priceScale};
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
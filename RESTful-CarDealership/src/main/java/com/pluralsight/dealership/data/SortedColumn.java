@@ -0,0 +1,125 @@
+package com.pluralsight.dealership.data;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+// a sorted primitive array of (value, slot) pairs used by the InventoryStore for range searches and top-k
+// the values stay in ascending order, equal values in vin order, which is the order of a listing:
+// a range query is two binary searches and a walk in between, and the first k of a listing are the first k entries
+// the vins aren't stored, they are looked up by slot for the few comparisons a binary search makes
+class SortedColumn {
+    private final IntUnaryOperator vinOfSlot;
+    private double[] values = new double[0];
+    private int[] slots = new int[0];
+    private int size;
+
+    SortedColumn(IntUnaryOperator vinOfSlot) {
+        this.vinOfSlot = vinOfSlot;
+    }
+
+    // replace the whole column at once, used when the store is loaded at startup
+    void load(double[] newValues, int[] newSlots, int count) {
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int compared = Double.compare(newValues[a], newValues[b]);
+            return compared != 0 ? compared : Integer.compare(vinOfSlot.applyAsInt(newSlots[a]), vinOfSlot.applyAsInt(newSlots[b]));
+        });
+
+        values = new double[Math.max(count, 16)];
+        slots = new int[values.length];
+        for (int i = 0; i < count; i++) {
+            values[i] = newValues[order[i]];
+            slots[i] = newSlots[order[i]];
+        }
+        size = count;
+    }
+
+    void insert(double value, int slot) {
+        if (size == values.length) {
+            int capacity = Math.max(16, values.length * 2);
+            values = Arrays.copyOf(values, capacity);
+            slots = Arrays.copyOf(slots, capacity);
+        }
+
+        int position = after(value, vinOfSlot.applyAsInt(slot));
+        System.arraycopy(values, position, values, position + 1, size - position);
+        System.arraycopy(slots, position, slots, position + 1, size - position);
+        values[position] = value;
+        slots[position] = slot;
+        size++;
+    }
+
+    // the slot still has to hold its vehicle, the vin is what finds it
+    void remove(double value, int slot) {
+        int i = after(value, vinOfSlot.applyAsInt(slot)) - 1;
+        if (i >= 0 && values[i] == value && slots[i] == slot) {
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+            size--;
+        }
+    }
+
+    // hands every slot whose value is within [min, max] to the consumer in ascending value order
+    void range(double min, double max, IntConsumer consumer) {
+        for (int i = after(min, Integer.MIN_VALUE); i < size && values[i] <= max; i++) {
+            consumer.accept(slots[i]);
+        }
+    }
+
+    // hands slots to the visitor in listing order, starting just past (value, vin): ascending, or descending
+    // with both the value and the vin reversed, and stops as soon as the visitor returns false
+    void walk(double value, int vin, boolean descending, IntPredicate visitor) {
+        if (descending) {
+            for (int i = after(value, vin - 1) - 1; i >= 0; i--) {
+                if (!visitor.test(slots[i])) {
+                    return;
+                }
+            }
+        } else {
+            for (int i = after(value, vin); i < size; i++) {
+                if (!visitor.test(slots[i])) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // slot of the lowest and the highest value, only valid when the column isn't empty
+    int firstSlot() {
+        return slots[0];
+    }
+
+    int lastSlot() {
+        return slots[size - 1];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        values = new double[0];
+        slots = new int[0];
+        size = 0;
+    }
+
+    // first index whose (value, vin) is past the given pair
+    private int after(double value, int vin) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value || (values[mid] == value && vinOfSlot.applyAsInt(slots[mid]) <= vin)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
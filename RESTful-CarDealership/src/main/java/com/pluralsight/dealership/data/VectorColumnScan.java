@@ -0,0 +1,94 @@
+package com.pluralsight.dealership.data;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+// the Vector API scan: each step loads one vector of rows from every filtered column straight from off-heap
+// memory, compares them all at once, and ANDs the lane masks together, so a multi-predicate filter costs a few
+// SIMD instructions per group of rows instead of a branch per row and predicate
+// the int columns use a species with as many lanes as the double one, so every mask has one bit per row
+// and they are combined as plain longs
+final class VectorColumnScan extends ColumnScan {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(DOUBLES.length() * Integer.SIZE));
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    @Override
+    void scan(ColumnarInventory.Columns columns, int rows, ColumnFilter filter, RowList matches) {
+        int lanes = DOUBLES.length();
+        int bound = DOUBLES.loopBound(rows);
+        boolean price = filter.filtersPrice();
+        boolean mileage = filter.filtersMileage();
+        boolean year = filter.filtersYear();
+
+        long allLanes = -1L >>> (Long.SIZE - lanes);
+
+        for (int row = 0; row < bound; row += lanes) {
+            long doubleOffset = (long) row * Double.BYTES;
+            long intOffset = (long) row * Integer.BYTES;
+            // one bit per row, a predicate clears the bits of the rows it rejects
+            long bits = allLanes;
+
+            if (price) {
+                DoubleVector prices = DoubleVector.fromMemorySegment(DOUBLES, columns.price, doubleOffset, ORDER);
+                bits &= prices.compare(VectorOperators.GE, filter.minPrice)
+                        .and(prices.compare(VectorOperators.LE, filter.maxPrice)).toLong();
+            }
+            if (mileage) {
+                DoubleVector mileages = DoubleVector.fromMemorySegment(DOUBLES, columns.mileage, doubleOffset, ORDER);
+                bits &= mileages.compare(VectorOperators.GE, filter.minMileage)
+                        .and(mileages.compare(VectorOperators.LE, filter.maxMileage)).toLong();
+            }
+            if (year) {
+                IntVector years = IntVector.fromMemorySegment(INTS, columns.year, intOffset, ORDER);
+                bits &= years.compare(VectorOperators.GE, filter.minYear)
+                        .and(years.compare(VectorOperators.LE, filter.maxYear)).toLong();
+            }
+            bits &= equalTo(columns.vin, intOffset, filter.vin);
+            bits &= equalTo(columns.make, intOffset, filter.make);
+            bits &= equalTo(columns.model, intOffset, filter.model);
+            bits &= equalTo(columns.color, intOffset, filter.color);
+            bits &= equalTo(columns.type, intOffset, filter.type);
+
+            while (bits != 0) {
+                matches.add(row + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        scanRows(columns, bound, rows, filter, matches);
+    }
+
+    @Override
+    int find(MemorySegment column, int rows, int value) {
+        VectorSpecies<Integer> species = IntVector.SPECIES_PREFERRED;
+        int bound = species.loopBound(rows);
+        for (int row = 0; row < bound; row += species.length()) {
+            VectorMask<Integer> equal = IntVector.fromMemorySegment(species, column, (long) row * Integer.BYTES, ORDER)
+                    .compare(VectorOperators.EQ, value);
+            if (equal.anyTrue()) {
+                return row + equal.firstTrue();
+            }
+        }
+        return findFrom(column, bound, rows, value);
+    }
+
+    @Override
+    String describe() {
+        return "vector (" + DOUBLES.length() + " lanes)";
+    }
+
+    private static long equalTo(MemorySegment column, long offset, int code) {
+        if (code == ColumnFilter.ANY) {
+            return -1L;
+        }
+        return IntVector.fromMemorySegment(INTS, column, offset, ORDER).compare(VectorOperators.EQ, code).toLong();
+    }
+}
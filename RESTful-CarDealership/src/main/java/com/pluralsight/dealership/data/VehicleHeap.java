@@ -0,0 +1,38 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// keeps the first limit vehicles in a given order out of any number offered, without sorting all of them
+// the heap's root is the worst vehicle kept, so each offer is one comparison and at most a log(limit) swap
+final class VehicleHeap {
+    private final Comparator<Vehicle> order;
+    private final int limit;
+    private final PriorityQueue<Vehicle> kept;
+
+    VehicleHeap(Comparator<Vehicle> order, int limit) {
+        this.order = order;
+        this.limit = limit;
+        this.kept = new PriorityQueue<>(Math.max(1, limit), order.reversed());
+    }
+
+    void offer(Vehicle vehicle) {
+        if (kept.size() < limit) {
+            kept.add(vehicle);
+        } else if (limit > 0 && order.compare(vehicle, kept.peek()) < 0) {
+            kept.poll();
+            kept.add(vehicle);
+        }
+    }
+
+    // the kept vehicles, best first
+    List<Vehicle> toSortedList() {
+        List<Vehicle> sorted = new ArrayList<>(kept);
+        sorted.sort(order);
+        return sorted;
+    }
+}
@@ -0,0 +1,31 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// turns one row of the shared vehicle select into a Vehicle
+// every inventory query selects the same 9 columns in the same order so they can all share this
+public final class VehicleRowMapper {
+    // the column list every inventory query selects, in the order mapRow reads them
+    public static final String COLUMNS = "v.VIN, v.`year`, v.make, v.model, v.`type`, v.color, v.mileage, v.price, i.dealershipID";
+
+    private VehicleRowMapper() {
+    }
+
+    public static Vehicle mapRow(ResultSet queryResults) throws SQLException {
+        int vin = queryResults.getInt(1);
+        int year = queryResults.getInt(2);
+        String make = queryResults.getString(3);
+        String model = queryResults.getString(4);
+        String type = queryResults.getString(5);
+        String color = queryResults.getString(6);
+        double mileage = queryResults.getDouble(7);
+        double price = queryResults.getDouble(8);
+
+        Vehicle vehicle = new Vehicle(vin, year, make, model, type, color, mileage, price, false);
+        vehicle.setDealershipId(queryResults.getInt(9));
+        return vehicle;
+    }
+}
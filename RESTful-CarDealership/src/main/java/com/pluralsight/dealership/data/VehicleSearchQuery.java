@@ -0,0 +1,136 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.VehicleCursor;
+import com.pluralsight.dealership.models.VehicleFilter;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.models.VehicleSortKey;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// builds one parameterized select out of whichever search filters are set
+// only the filters the user asked for end up in the where clause, and every value is bound with a ? placeholder
+class VehicleSearchQuery {
+    private final StringBuilder where = new StringBuilder("where i.is_Sold = false");
+    private final List<Object> parameters = new ArrayList<>();
+    private String orderBy = "";
+
+    VehicleSearchQuery(VehicleSearchCriteria criteria) {
+        addEquals("v.VIN", criteria.getVin());
+        addEquals("v.make", criteria.getMake());
+        addEquals("v.model", criteria.getModel());
+        addEquals("v.color", criteria.getColor());
+        addEquals("v.`type`", criteria.getType());
+        addRange("v.price", criteria.getMinPrice(), criteria.getMaxPrice());
+        addRange("v.`year`", criteria.getMinYear(), criteria.getMaxYear());
+        addRange("v.mileage", criteria.getMinMileage(), criteria.getMaxMileage());
+        addEquals("i.dealershipID", criteria.getDealershipId());
+    }
+
+    VehicleSearchQuery(VehicleFilter filter) {
+        addIn("v.make", filter.getMake(), false);
+        addIn("v.model", filter.getModel(), false);
+        addIn("v.color", filter.getColor(), false);
+        addIn("v.`type`", filter.getType(), false);
+        addIn("v.`year`", filter.getYear(), false);
+        addIn("v.make", filter.getNotMake(), true);
+        addIn("v.model", filter.getNotModel(), true);
+        addIn("v.color", filter.getNotColor(), true);
+        addIn("v.`type`", filter.getNotType(), true);
+        addIn("v.`year`", filter.getNotYear(), true);
+        addRange("v.price", filter.getMinPrice(), filter.getMaxPrice());
+        addRange("v.mileage", filter.getMinMileage(), filter.getMaxMileage());
+    }
+
+    String toSql() {
+        return """
+                select %s
+                from car_dealership.vehicles v
+                inner join car_dealership.inventory i on i.VIN = v.VIN
+                %s
+                %s
+                """.formatted(VehicleRowMapper.COLUMNS, where, orderBy);
+    }
+
+    // sort the results and start right after the cursor, the VIN breaks ties so the order is total
+    // a keyset predicate instead of an OFFSET, so MySQL can seek straight to the page on the index
+    // one extra row is fetched to tell whether there is a next page
+    void page(VehicleSortKey sortKey, boolean descending, VehicleCursor cursor, int limit) {
+        String direction = descending ? "desc" : "asc";
+        String comparison = descending ? " < ?" : " > ?";
+
+        if (cursor != null) {
+            Object cursorValue = bindableValue(sortKey, cursor.getValue());
+            if (sortKey == VehicleSortKey.VIN) {
+                where.append(" and v.VIN").append(comparison);
+                parameters.add(cursor.getVin());
+            } else {
+                where.append(" and (").append(sortKey.getColumn()).append(comparison)
+                        .append(" or (").append(sortKey.getColumn()).append(" = ? and v.VIN").append(comparison).append("))");
+                parameters.add(cursorValue);
+                parameters.add(cursorValue);
+                parameters.add(cursor.getVin());
+            }
+        }
+
+        orderBy = orderClause(sortKey, direction) + " limit ?";
+        parameters.add(limit + 1);
+    }
+
+    // only the first limit rows in sort order, with an index on the sort column MySQL reads just those rows
+    void top(VehicleSortKey sortKey, boolean descending, int limit) {
+        orderBy = orderClause(sortKey, descending ? "desc" : "asc") + " limit ?";
+        parameters.add(limit);
+    }
+
+    private static String orderClause(VehicleSortKey sortKey, String direction) {
+        return sortKey == VehicleSortKey.VIN
+                ? "order by v.VIN " + direction
+                : "order by " + sortKey.getColumn() + " " + direction + ", v.VIN " + direction;
+    }
+
+    private static Object bindableValue(VehicleSortKey sortKey, double value) {
+        return sortKey == VehicleSortKey.YEAR || sortKey == VehicleSortKey.VIN ? (Object) (int) value : (Object) value;
+    }
+
+    // protect from sql injection by binding every value instead of pasting it into the query
+    void bind(PreparedStatement s) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            s.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    // text is trimmed like the in-memory store and the result cache do, so all of them agree on "Honda "
+    private void addEquals(String column, Object value) {
+        if (value != null) {
+            where.append(" and ").append(column).append(" = ?");
+            parameters.add(value instanceof String text ? text.trim() : value);
+        }
+    }
+
+    // column in (?, ?, ...), or not in when the values are to be left out
+    private void addIn(String column, List<?> values, boolean exclude) {
+        if (VehicleFilter.isEmpty(values)) {
+            return;
+        }
+        where.append(" and ").append(column).append(exclude ? " not in (" : " in (");
+        for (int i = 0; i < values.size(); i++) {
+            where.append(i == 0 ? "?" : ", ?");
+            parameters.add(values.get(i) instanceof String text ? text.trim() : values.get(i));
+        }
+        where.append(")");
+    }
+
+    private void addRange(String column, Object min, Object max) {
+        if (min != null) {
+            where.append(" and ").append(column).append(" >= ?");
+            parameters.add(min);
+        }
+        if (max != null) {
+            where.append(" and ").append(column).append(" <= ?");
+            parameters.add(max);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Suggestion;
+import com.pluralsight.dealership.models.TermMatch;
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+// the component tag tells Spring to keep one typo-tolerant index of the makes, models, colors and types on the lot
+// the index holds the distinct values (a few hundred), not the vehicles: each value is split into trigrams,
+// "civic" -> "  c", " ci", "civ", "ivi", "vic", "ic ", "c  ", and a misspelling still shares most of them,
+// so only values with enough trigrams in common are compared with the full edit distance
+// the same values are also kept in prefix tries for autocomplete
+@Component
+public class VehicleTermIndex {
+
+    public enum Field {
+        MAKE(Vehicle::getMake, VehicleSearchCriteria::setMake),
+        MODEL(Vehicle::getModel, VehicleSearchCriteria::setModel),
+        COLOR(Vehicle::getColor, VehicleSearchCriteria::setColor),
+        TYPE(Vehicle::getType, VehicleSearchCriteria::setType);
+
+        private final Function<Vehicle, String> getter;
+        private final BiConsumer<VehicleSearchCriteria, String> filter;
+
+        Field(Function<Vehicle, String> getter, BiConsumer<VehicleSearchCriteria, String> filter) {
+            this.getter = getter;
+            this.filter = filter;
+        }
+
+        // sets this field's filter on the criteria
+        public void filter(VehicleSearchCriteria criteria, String value) {
+            filter.accept(criteria, value);
+        }
+
+        // the field named in a query string (any case), null when none is given
+        public static Field fromParameter(String field) {
+            if (field == null || field.isBlank()) {
+                return null;
+            }
+            try {
+                return valueOf(field.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cannot search on " + field + ", use make, model, color or type");
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // the values of every unsold vehicle, so a removal (which only knows the vin) can be undone
+    private final Map<Integer, String[]> valuesByVin = new HashMap<>();
+    private final Map<Field, Map<String, Term>> terms = new EnumMap<>(Field.class);
+    private final Map<String, List<Term>> byTrigram = new HashMap<>();
+    // one prefix trie per field for autocomplete, it only changes when a value appears or disappears
+    private final Map<Field, PrefixTrie<Term>> prefixes = new EnumMap<>(Field.class);
+
+    public VehicleTermIndex() {
+        for (Field field : Field.values()) {
+            terms.put(field, new HashMap<>());
+            prefixes.put(field, new PrefixTrie<>());
+        }
+    }
+
+    // replace the contents of the index
+    public void load(Collection<Vehicle> vehicles) {
+        lock.writeLock().lock();
+        try {
+            valuesByVin.clear();
+            byTrigram.clear();
+            terms.values().forEach(Map::clear);
+            prefixes.values().forEach(PrefixTrie::clear);
+            vehicles.forEach(this::addVehicle);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(Vehicle vehicle) {
+        lock.writeLock().lock();
+        try {
+            addVehicle(vehicle);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int vin) {
+        lock.writeLock().lock();
+        try {
+            removeVehicle(vin);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        if (change.type() == InventoryChangeEvent.Type.ADDED) {
+            add(change.vehicle());
+        } else {
+            remove(change.vin());
+        }
+    }
+
+    // values close to the query, closest first, then the ones with the most vehicles
+    // field limits the match to one field, null looks at all four
+    // short queries allow 1 typo, longer ones 2, and 3 from 9 letters on
+    public List<TermMatch> match(String query, Field field) {
+        String key = key(query);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        int maxDistance = key.length() <= 4 ? 1 : key.length() <= 8 ? 2 : 3;
+
+        lock.readLock().lock();
+        try {
+            // every edit changes at most 3 trigrams, so a value within maxDistance shares at least this many
+            Set<String> grams = trigrams(key);
+            int needed = grams.size() - 3 * maxDistance;
+
+            Collection<Term> candidates;
+            if (needed <= 0) {
+                // too short to rule anything out by trigrams, the vocabulary is small enough to check all of it
+                candidates = new ArrayList<>();
+                for (Field f : Field.values()) {
+                    if (field == null || field == f) {
+                        candidates.addAll(terms.get(f).values());
+                    }
+                }
+            } else {
+                Map<Term, Integer> shared = new HashMap<>();
+                for (String gram : grams) {
+                    for (Term term : byTrigram.getOrDefault(gram, List.of())) {
+                        if (field == null || term.field == field) {
+                            shared.merge(term, 1, Integer::sum);
+                        }
+                    }
+                }
+                candidates = new ArrayList<>();
+                shared.forEach((term, count) -> {
+                    if (count >= needed) {
+                        candidates.add(term);
+                    }
+                });
+            }
+
+            List<TermMatch> matches = new ArrayList<>();
+            for (Term term : candidates) {
+                int distance = editDistance(key, term.key, maxDistance);
+                if (distance <= maxDistance) {
+                    matches.add(new TermMatch(term.field.name().toLowerCase(Locale.ROOT), term.label, distance, term.count));
+                }
+            }
+            matches.sort(Comparator.comparingInt(TermMatch::distance)
+                    .thenComparing(Comparator.comparingInt(TermMatch::vehicles).reversed())
+                    .thenComparing(TermMatch::value));
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the values starting with the prefix, most vehicles first, at most limit of them
+    // e.g. "to" -> Toyota (120), Tacoma... field limits it to one field, null looks at all four
+    public List<Suggestion> suggest(String prefix, Field field, int limit) {
+        String key = key(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // the best so far, kept sorted by count in a fixed-size array instead of sorting every match
+            Term[] best = new Term[limit];
+            int[] found = {0};
+            for (Field f : Field.values()) {
+                if (field == null || field == f) {
+                    prefixes.get(f).forEachWithPrefix(key, term -> found[0] = keepBest(best, found[0], term));
+                }
+            }
+
+            List<Suggestion> suggestions = new ArrayList<>(found[0]);
+            for (int i = 0; i < found[0]; i++) {
+                suggestions.add(new Suggestion(best[i].field.name().toLowerCase(Locale.ROOT), best[i].label, best[i].count));
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // helper methods
+    private static int keepBest(Term[] best, int found, Term term) {
+        int position = found;
+        while (position > 0 && best[position - 1].count < term.count) {
+            position--;
+        }
+        if (position == best.length) {
+            return found;
+        }
+        int kept = Math.min(found + 1, best.length);
+        System.arraycopy(best, position, best, position + 1, kept - position - 1);
+        best[position] = term;
+        return kept;
+    }
+
+    private void addVehicle(Vehicle vehicle) {
+        removeVehicle(vehicle.getVin());
+        Field[] fields = Field.values();
+        String[] values = new String[fields.length];
+        for (Field field : fields) {
+            String value = field.getter.apply(vehicle);
+            values[field.ordinal()] = value;
+            String key = key(value);
+            if (key.isEmpty()) {
+                continue;
+            }
+            Term term = terms.get(field).get(key);
+            if (term == null) {
+                term = new Term(field, key, value.trim());
+                terms.get(field).put(key, term);
+                prefixes.get(field).put(key, term);
+                for (String gram : trigrams(key)) {
+                    byTrigram.computeIfAbsent(gram, g -> new ArrayList<>()).add(term);
+                }
+            }
+            term.count++;
+        }
+        valuesByVin.put(vehicle.getVin(), values);
+    }
+
+    private void removeVehicle(int vin) {
+        String[] values = valuesByVin.remove(vin);
+        if (values == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            String key = key(values[field.ordinal()]);
+            Term term = terms.get(field).get(key);
+            if (term == null || --term.count > 0) {
+                continue;
+            }
+            // the last vehicle with this value is gone, so the value stops matching
+            terms.get(field).remove(key);
+            prefixes.get(field).remove(key);
+            for (String gram : trigrams(key)) {
+                List<Term> posting = byTrigram.get(gram);
+                posting.remove(term);
+                if (posting.isEmpty()) {
+                    byTrigram.remove(gram);
+                }
+            }
+        }
+    }
+
+    // the distinct trigrams of the value padded with two spaces on each side
+    private static Set<String> trigrams(String key) {
+        String padded = "  " + key + "  ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // Levenshtein distance, gives up and returns max + 1 as soon as every path is longer than max
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Term {
+        private final Field field;
+        private final String key;
+        private final String label;
+        private int count;
+
+        private Term(Field field, String key, String label) {
+            this.field = field;
+            this.key = key;
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.pluralsight.dealership.models;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the monthly payment per $1 borrowed for a financing term
+// payment = price * factor, so the two Math.pow calls only run once per (rate, term) pair that is kept
+// terms also come from clients of /quotes/batch, so only the first MAX_KEPT distinct pairs are kept (the contracts'
+// own terms are always among them), any others are worked out again on every quote
+public final class AnnuityFactors {
+    private static final int MAX_KEPT = 256;
+    private static final Map<QuoteTerm, Double> factors = new ConcurrentHashMap<>();
+
+    private AnnuityFactors() {
+    }
+
+    public static double factor(QuoteTerm term) {
+        Double kept = factors.get(term);
+        if (kept != null) {
+            return kept;
+        }
+        double factor = compute(term);
+        // racing callers can each add one past the limit, that's still bounded
+        if (factors.size() < MAX_KEPT && Double.isFinite(factor)) {
+            factors.putIfAbsent(term, factor);
+        }
+        return factor;
+    }
+
+    // how many factors are kept
+    public static int size() {
+        return factors.size();
+    }
+
+    private static double compute(QuoteTerm term) {
+        double interestRate = term.interestRate();
+        int periods = 12 * term.loanLength();
+        if (interestRate == 0) {
+            return 1.0 / periods;
+        }
+        // r / (1 - (1 + r)^-n), never overflows the way r * (1 + r)^n / ((1 + r)^n - 1) does for big rates or terms
+        // and expm1/log1p keep 1 - (1 + r)^-n from rounding to 0 for tiny rates
+        return interestRate / -Math.expm1(-periods * Math.log1p(interestRate));
+    }
+}
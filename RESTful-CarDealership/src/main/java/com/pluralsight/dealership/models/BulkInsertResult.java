@@ -0,0 +1,43 @@
+package com.pluralsight.dealership.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the report sent back after a bulk vehicle upload
+// rows are numbered from 0 in the order they were sent
+public class BulkInsertResult {
+    // instance variables
+    private int received;
+    private int inserted;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    // getters
+    public int getReceived() {
+        return received;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public List<RowFailure> getFailures() {
+        return failures;
+    }
+
+    // derived methods
+    public void addReceived() {
+        received++;
+    }
+
+    public void addInserted(int count) {
+        inserted += count;
+    }
+
+    public void addFailure(int row, int vin, String reason) {
+        failures.add(new RowFailure(row, vin, reason));
+    }
+
+    // one row that could not be added and why
+    public record RowFailure(int row, int vin, String reason) {
+    }
+}
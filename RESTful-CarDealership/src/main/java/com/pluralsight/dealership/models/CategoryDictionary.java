@@ -0,0 +1,35 @@
+package com.pluralsight.dealership.models;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// one shared String instance per distinct make, model, type and color
+// those columns only have a few hundred distinct values, but every row read from MySQL and every vehicle in a JSON
+// body arrives as its own fresh String, so 100k vehicles would otherwise hold 400k copies of the same few words
+// the fresh copy becomes garbage right away and dies young, only the dictionary's instance is kept
+public final class CategoryDictionary {
+    // a typo or a bad upload can't grow the dictionary forever, past this size values are kept as they come
+    static final int MAX_VALUES = 50_000;
+    private static final ConcurrentHashMap<String, String> VALUES = new ConcurrentHashMap<>();
+
+    private CategoryDictionary() {
+    }
+
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = VALUES.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (VALUES.size() >= MAX_VALUES) {
+            return value;
+        }
+        shared = VALUES.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    public static int size() {
+        return VALUES.size();
+    }
+}
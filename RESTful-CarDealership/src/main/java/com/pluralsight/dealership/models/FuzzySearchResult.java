@@ -0,0 +1,7 @@
+package com.pluralsight.dealership.models;
+
+import java.util.List;
+
+// the values that matched a typo-tolerant search, closest first, and the vehicles that have them in the same order
+public record FuzzySearchResult(List<TermMatch> matches, List<Vehicle> vehicles) {
+}
@@ -0,0 +1,40 @@
+package com.pluralsight.dealership.models;
+
+import java.util.List;
+
+// what a client needs to bring its copy of the inventory up to date
+// when snapshot is true, vehicles is the whole inventory and the client replaces its copy,
+// otherwise it adds or replaces the vehicles and deletes the removed vins
+// version is passed back as ?since= on the next sync
+public class InventoryDelta {
+    // instance variables
+    private final String version;
+    private final boolean snapshot;
+    private final List<Vehicle> vehicles;
+    private final List<Integer> removed;
+
+    // constructor
+    public InventoryDelta(String version, boolean snapshot, List<Vehicle> vehicles, List<Integer> removed) {
+        this.version = version;
+        this.snapshot = snapshot;
+        this.vehicles = vehicles;
+        this.removed = removed;
+    }
+
+    // getters
+    public String getVersion() {
+        return version;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public List<Vehicle> getVehicles() {
+        return vehicles;
+    }
+
+    public List<Integer> getRemoved() {
+        return removed;
+    }
+}
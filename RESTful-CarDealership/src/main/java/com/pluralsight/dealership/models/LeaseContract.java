@@ -2,6 +2,8 @@ package com.pluralsight.dealership.models;
 
 
 public class LeaseContract extends Contract {
+    public static final QuoteTerm LEASE_TERM = new QuoteTerm(0.04, 36);
+    private static final double LEASE_FACTOR = AnnuityFactors.factor(LEASE_TERM);
 
     private double endingValue;
     private double leaseFee;
@@ -51,12 +53,8 @@ public class LeaseContract extends Contract {
 
     @Override
     public double getMonthlyPayment(Vehicle vehicleSold) {
-        double principalAmount = vehicleSold.getPrice();
-        double interestRate = 0.04;
-        int loanLength = 36;
-
-        return principalAmount * (interestRate * Math.pow(1 + interestRate, 12 * loanLength)
-                / (Math.pow(1 + interestRate, 12 * loanLength) - 1));
+        // the payment per $1 for the lease term is worked out once, so this is a single multiply
+        return vehicleSold.getPrice() * LEASE_FACTOR;
 
     }
 
@@ -0,0 +1,7 @@
+package com.pluralsight.dealership.models;
+
+import java.util.List;
+
+// the body of a /quotes/batch request: the prices to quote and, optionally, extra financing terms to quote them on
+public record QuoteRequest(double[] prices, List<QuoteTerm> terms) {
+}
@@ -0,0 +1,12 @@
+package com.pluralsight.dealership.models;
+
+import java.util.List;
+
+// monthly payments for every price in the request, in the same order as the prices
+// salesPayments and leasePayments use the dealership's standard contract terms,
+// termPayments has one row per requested term
+public record QuoteResponse(double[] salesPayments,
+                            double[] leasePayments,
+                            List<QuoteTerm> terms,
+                            double[][] termPayments) {
+}
@@ -0,0 +1,23 @@
+package com.pluralsight.dealership.models;
+
+// one financing offer: the interest rate and the loan length in years
+// payments are worked out over 12 * loanLength periods, the same way the contracts do it
+public record QuoteTerm(double interestRate, int loanLength) {
+    public static final int MAX_LOAN_LENGTH = 100;
+
+    // a term the annuity formula can't price, e.g. 0 years (0 periods) or a negative rate, is the client's mistake
+    public void validate() {
+        if (loanLength <= 0 || loanLength > MAX_LOAN_LENGTH) {
+            throw new IllegalArgumentException("loanLength must be between 1 and " + MAX_LOAN_LENGTH + " years, was "
+                    + loanLength);
+        }
+        if (!(interestRate >= 0) || Double.isInfinite(interestRate)) {
+            throw new IllegalArgumentException("interestRate must be 0 or more, was " + interestRate);
+        }
+        // a rate that is a number can still be too big to give a payment that is one
+        if (!Double.isFinite(AnnuityFactors.factor(this))) {
+            throw new IllegalArgumentException("interestRate " + interestRate + " over " + loanLength
+                    + " years gives no payment that can be quoted");
+        }
+    }
+}
@@ -2,6 +2,13 @@ package com.pluralsight.dealership.models;
 
 
 public class SalesContract extends Contract {
+    // financing offers: vehicles at or above the cutoff get the standard loan, cheaper ones the small loan
+    public static final double FINANCING_CUTOFF = 10000;
+    public static final QuoteTerm STANDARD_LOAN = new QuoteTerm(0.0425, 48);
+    public static final QuoteTerm SMALL_LOAN = new QuoteTerm(0.0525, 24);
+    private static final double STANDARD_LOAN_FACTOR = AnnuityFactors.factor(STANDARD_LOAN);
+    private static final double SMALL_LOAN_FACTOR = AnnuityFactors.factor(SMALL_LOAN);
+
     private double salesTax; // total price * .5
     private double recordingFee; // 100
     private double processingFee;
@@ -72,26 +79,13 @@ public class SalesContract extends Contract {
     public double getMonthlyPayment(Vehicle vehicleSold) {
         // how do I get the monthly payment variable to 0 for a
         // NO loan option?
-        double principalAmount = vehicleSold.getPrice();
-        double interestRate;
-        int loanLength;
-
         if (!finance) {
             return 0;
         }
 
-        if (vehicleSold.getPrice() >= 10000) {
-            interestRate = 0.0425;
-            loanLength = 48;
-        } else {
-            interestRate = 0.0525;
-            loanLength = 24;
-        }
-
-        double monthlyPayment =
-                principalAmount * (interestRate * Math.pow(1 + interestRate, 12 * loanLength)
-                        / (Math.pow(1 + interestRate, 12 * loanLength) - 1));
-        return monthlyPayment;
+        // the payment per $1 for each term is worked out once, so this is a single multiply
+        double factor = vehicleSold.getPrice() >= FINANCING_CUTOFF ? STANDARD_LOAN_FACTOR : SMALL_LOAN_FACTOR;
+        return vehicleSold.getPrice() * factor;
     }
 
     // display methods
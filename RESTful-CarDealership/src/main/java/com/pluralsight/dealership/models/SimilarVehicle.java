@@ -0,0 +1,6 @@
+package com.pluralsight.dealership.models;
+
+// one "similar car": the vehicle and how far it is from the one being looked at
+// distance is in scaled units, 1 is about one year-scale, mileage-scale or price-scale apart (see application.properties)
+public record SimilarVehicle(Vehicle vehicle, double distance) {
+}
@@ -0,0 +1,5 @@
+package com.pluralsight.dealership.models;
+
+// an autocomplete suggestion: a make, model, color or type on the lot and how many unsold vehicles have it
+public record Suggestion(String field, String value, int vehicles) {
+}
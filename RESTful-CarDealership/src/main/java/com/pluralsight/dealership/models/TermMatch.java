@@ -0,0 +1,6 @@
+package com.pluralsight.dealership.models;
+
+// a make, model, color or type on the lot that is close to what was typed
+// distance is the number of letters that differ, vehicles is how many unsold vehicles have this value
+public record TermMatch(String field, String value, int distance, int vehicles) {
+}
@@ -12,16 +12,19 @@ public class Vehicle {
     private double mileage;
     private double price;
     private boolean hasContract;
+    // which dealership (rooftop) has the vehicle on its lot, 0 until it is added to one
+    private int dealershipId;
 
     // constructor
     public Vehicle(int vin, int year, String make, String model, String type, String color, double mileage,
                    double price, boolean hasContract) {
         this.vin = vin;
         this.year = year;
-        this.make = make;
-        this.model = model;
-        this.type = type;
-        this.color = color;
+        // the categorical fields share one instance per distinct value, see CategoryDictionary
+        this.make = CategoryDictionary.intern(make);
+        this.model = CategoryDictionary.intern(model);
+        this.type = CategoryDictionary.intern(type);
+        this.color = CategoryDictionary.intern(color);
         this.mileage = mileage;
         this.price = price;
         this.hasContract = false;
@@ -49,7 +52,7 @@ public class Vehicle {
     }
 
     public void setMake(String make) {
-        this.make = make;
+        this.make = CategoryDictionary.intern(make);
     }
 
     public String getModel() {
@@ -73,7 +76,7 @@ public class Vehicle {
     }
 
     public void setColor(String color) {
-        this.color = color;
+        this.color = CategoryDictionary.intern(color);
     }
 
     public double getMileage() {
@@ -89,7 +92,7 @@ public class Vehicle {
     }
 
     public void setType(String type) {
-        this.type = type;
+        this.type = CategoryDictionary.intern(type);
     }
 
     public boolean isHasContract() {
@@ -100,6 +103,22 @@ public class Vehicle {
         this.hasContract = hasContract;
     }
 
+    public int getDealershipId() {
+        return dealershipId;
+    }
+
+    public void setDealershipId(int dealershipId) {
+        this.dealershipId = dealershipId;
+    }
+
+    // a separate vehicle with the same values, for handing out a shared one without sharing its setters
+    public Vehicle copy() {
+        Vehicle copy = new Vehicle(vin, year, make, model, type, color, mileage, price, hasContract);
+        copy.setHasContract(hasContract);
+        copy.setDealershipId(dealershipId);
+        return copy;
+    }
+
     // display methods
     @Override
     public String toString() {
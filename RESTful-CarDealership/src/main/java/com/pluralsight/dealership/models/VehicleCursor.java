@@ -0,0 +1,80 @@
+package com.pluralsight.dealership.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// the position of the last vehicle on a page: its sort value and its VIN
+// it is handed to clients as an opaque base64 string and the next page starts right after it
+// (a keyset predicate on an index instead of an OFFSET, so every page costs the same)
+public class VehicleCursor {
+    // instance variables
+    private final VehicleSortKey sortKey;
+    private final boolean descending;
+    private final double value;
+    private final int vin;
+
+    // constructor
+    public VehicleCursor(VehicleSortKey sortKey, boolean descending, double value, int vin) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        this.value = value;
+        this.vin = vin;
+    }
+
+    // the cursor pointing just after the given vehicle
+    public static VehicleCursor after(Vehicle vehicle, VehicleSortKey sortKey, boolean descending) {
+        return new VehicleCursor(sortKey, descending, sortKey.valueOf(vehicle), vehicle.getVin());
+    }
+
+    // read a cursor sent back by a client, it has to belong to the same sort it is used with
+    public static VehicleCursor decode(String encoded, VehicleSortKey sortKey, boolean descending) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4
+                || !parts[0].equals(sortKey.name())
+                || Boolean.parseBoolean(parts[1]) != descending) {
+            throw new IllegalArgumentException("Cursor does not belong to this sort order");
+        }
+        try {
+            return new VehicleCursor(sortKey, descending, Double.parseDouble(parts[2]), Integer.parseInt(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = sortKey.name() + ":" + descending + ":" + value + ":" + vin;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // getters
+    public VehicleSortKey getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public int getVin() {
+        return vin;
+    }
+
+    // derived methods
+    // true when the vehicle comes after this cursor in the listing order
+    public boolean isBefore(Vehicle vehicle) {
+        int comparison = Double.compare(sortKey.valueOf(vehicle), value);
+        if (comparison == 0) {
+            comparison = Integer.compare(vehicle.getVin(), vin);
+        }
+        return descending ? comparison < 0 : comparison > 0;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pluralsight.dealership.models;
+
+import java.util.Map;
+
+// counts and statistics for the vehicles matching a search, for the filters in the search UI
+// each map is value -> number of matching vehicles, price and mileage are null when nothing matches
+public record VehicleFacets(int count,
+                            Map<String, Integer> makes,
+                            Map<String, Integer> models,
+                            Map<String, Integer> colors,
+                            Map<String, Integer> types,
+                            Map<Integer, Integer> years,
+                            Range price,
+                            Range mileage) {
+
+    public record Range(double min, double max, double average) {
+    }
+}
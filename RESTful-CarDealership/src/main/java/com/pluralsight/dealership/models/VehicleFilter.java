@@ -0,0 +1,202 @@
+package com.pluralsight.dealership.models;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+// a combined filter with several allowed values per field and values to leave out
+// values of one field are OR'ed, the fields are AND'ed, and the not* values are taken away at the end
+// Spring fills this in from the query string, a field can be repeated or comma separated, e.g.
+// /inventory/filter?make=Ford&color=red,blue&type=Truck&notYear=2015&maxPrice=40000
+public class VehicleFilter {
+    // instance variables
+    private List<String> make;
+    private List<String> model;
+    private List<String> color;
+    private List<String> type;
+    private List<Integer> year;
+    private List<String> notMake;
+    private List<String> notModel;
+    private List<String> notColor;
+    private List<String> notType;
+    private List<Integer> notYear;
+    private Double minPrice;
+    private Double maxPrice;
+    private Double minMileage;
+    private Double maxMileage;
+
+    // getters & setters
+    public List<String> getMake() {
+        return make;
+    }
+
+    public void setMake(List<String> make) {
+        this.make = make;
+    }
+
+    public List<String> getModel() {
+        return model;
+    }
+
+    public void setModel(List<String> model) {
+        this.model = model;
+    }
+
+    public List<String> getColor() {
+        return color;
+    }
+
+    public void setColor(List<String> color) {
+        this.color = color;
+    }
+
+    public List<String> getType() {
+        return type;
+    }
+
+    public void setType(List<String> type) {
+        this.type = type;
+    }
+
+    public List<Integer> getYear() {
+        return year;
+    }
+
+    public void setYear(List<Integer> year) {
+        this.year = year;
+    }
+
+    public List<String> getNotMake() {
+        return notMake;
+    }
+
+    public void setNotMake(List<String> notMake) {
+        this.notMake = notMake;
+    }
+
+    public List<String> getNotModel() {
+        return notModel;
+    }
+
+    public void setNotModel(List<String> notModel) {
+        this.notModel = notModel;
+    }
+
+    public List<String> getNotColor() {
+        return notColor;
+    }
+
+    public void setNotColor(List<String> notColor) {
+        this.notColor = notColor;
+    }
+
+    public List<String> getNotType() {
+        return notType;
+    }
+
+    public void setNotType(List<String> notType) {
+        this.notType = notType;
+    }
+
+    public List<Integer> getNotYear() {
+        return notYear;
+    }
+
+    public void setNotYear(List<Integer> notYear) {
+        this.notYear = notYear;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Double getMinMileage() {
+        return minMileage;
+    }
+
+    public void setMinMileage(Double minMileage) {
+        this.minMileage = minMileage;
+    }
+
+    public Double getMaxMileage() {
+        return maxMileage;
+    }
+
+    public void setMaxMileage(Double maxMileage) {
+        this.maxMileage = maxMileage;
+    }
+
+    // derived methods
+    // checks the price and mileage ranges, the categories are already settled by the indexes
+    public boolean inRange(Vehicle vehicle) {
+        return (minPrice == null || vehicle.getPrice() >= minPrice)
+                && (maxPrice == null || vehicle.getPrice() <= maxPrice)
+                && (minMileage == null || vehicle.getMileage() >= minMileage)
+                && (maxMileage == null || vehicle.getMileage() <= maxMileage);
+    }
+
+    // checks a vehicle against the whole filter, text values ignore case like MySQL does
+    public boolean matches(Vehicle vehicle) {
+        return anyOf(make, vehicle.getMake()) && anyOf(model, vehicle.getModel())
+                && anyOf(color, vehicle.getColor()) && anyOf(type, vehicle.getType())
+                && (isEmpty(year) || year.contains(vehicle.getYear()))
+                && !isSet(notMake, vehicle.getMake()) && !isSet(notModel, vehicle.getModel())
+                && !isSet(notColor, vehicle.getColor()) && !isSet(notType, vehicle.getType())
+                && (isEmpty(notYear) || !notYear.contains(vehicle.getYear()))
+                && inRange(vehicle);
+    }
+
+    // display methods
+    @Override
+    public String toString() {
+        StringJoiner filters = new StringJoiner(", ", "[", "]");
+        if (!isEmpty(make)) filters.add("make=" + make);
+        if (!isEmpty(model)) filters.add("model=" + model);
+        if (!isEmpty(color)) filters.add("color=" + color);
+        if (!isEmpty(type)) filters.add("type=" + type);
+        if (!isEmpty(year)) filters.add("year=" + year);
+        if (!isEmpty(notMake)) filters.add("notMake=" + notMake);
+        if (!isEmpty(notModel)) filters.add("notModel=" + notModel);
+        if (!isEmpty(notColor)) filters.add("notColor=" + notColor);
+        if (!isEmpty(notType)) filters.add("notType=" + notType);
+        if (!isEmpty(notYear)) filters.add("notYear=" + notYear);
+        if (minPrice != null) filters.add("minPrice=" + minPrice);
+        if (maxPrice != null) filters.add("maxPrice=" + maxPrice);
+        if (minMileage != null) filters.add("minMileage=" + minMileage);
+        if (maxMileage != null) filters.add("maxMileage=" + maxMileage);
+        return filters.toString();
+    }
+
+    // helper methods
+    public static boolean isEmpty(List<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    // an empty list allows every value
+    private static boolean anyOf(List<String> values, String value) {
+        return isEmpty(values) || isSet(values, value);
+    }
+
+    private static boolean isSet(List<String> values, String value) {
+        if (values == null) {
+            return false;
+        }
+        for (String candidate : values) {
+            if (candidate.trim().equalsIgnoreCase(value == null ? "" : value.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package com.pluralsight.dealership.models;
+
+import java.util.List;
+
+// one page of an inventory listing
+// nextCursor is null on the last page, otherwise pass it back as ?cursor= to get the next one
+public class VehiclePage {
+    // instance variables
+    private final List<Vehicle> vehicles;
+    private final String nextCursor;
+
+    // constructor
+    public VehiclePage(List<Vehicle> vehicles, String nextCursor) {
+        this.vehicles = vehicles;
+        this.nextCursor = nextCursor;
+    }
+
+    // getters
+    public List<Vehicle> getVehicles() {
+        return vehicles;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
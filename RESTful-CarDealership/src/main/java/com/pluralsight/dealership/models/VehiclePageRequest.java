@@ -0,0 +1,56 @@
+package com.pluralsight.dealership.models;
+
+// the paging part of an inventory listing: how to sort, how many to return and where the last page stopped
+// sort is one of price, mileage, year or vin, with a leading '-' for descending (e.g. sort=-year)
+// cursor is the opaque nextCursor handed back with the previous page
+public class VehiclePageRequest {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    // instance variables
+    private String sort = "vin";
+    private Integer limit;
+    private String cursor;
+
+    // getters & setters
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    // derived methods
+    // the page size actually used, kept between 1 and MAX_LIMIT so one request can't pull the whole lot
+    public int getEffectiveLimit() {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public VehicleSortKey getSortKey() {
+        return VehicleSortKey.fromParameter(sort);
+    }
+
+    public boolean isDescending() {
+        return sort != null && sort.startsWith("-");
+    }
+}
@@ -0,0 +1,163 @@
+package com.pluralsight.dealership.models;
+
+import java.util.StringJoiner;
+
+// holds any combination of search filters for the inventory
+// every field is optional, a null field means "don't filter on this"
+// Spring fills this in from the query string, e.g. /inventory/search?color=red&type=SUV&maxPrice=30000
+public class VehicleSearchCriteria {
+    // instance variables
+    private Integer vin;
+    private String make;
+    private String model;
+    private String color;
+    private String type;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minYear;
+    private Integer maxYear;
+    private Double minMileage;
+    private Double maxMileage;
+    // only this dealership's vehicles, null searches every dealership
+    private Integer dealershipId;
+
+    // getters & setters
+    public Integer getVin() {
+        return vin;
+    }
+
+    public void setVin(Integer vin) {
+        this.vin = vin;
+    }
+
+    public String getMake() {
+        return make;
+    }
+
+    public void setMake(String make) {
+        this.make = trim(make);
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = trim(model);
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = trim(color);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = trim(type);
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public void setMinYear(Integer minYear) {
+        this.minYear = minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public void setMaxYear(Integer maxYear) {
+        this.maxYear = maxYear;
+    }
+
+    public Double getMinMileage() {
+        return minMileage;
+    }
+
+    public void setMinMileage(Double minMileage) {
+        this.minMileage = minMileage;
+    }
+
+    public Double getMaxMileage() {
+        return maxMileage;
+    }
+
+    public void setMaxMileage(Double maxMileage) {
+        this.maxMileage = maxMileage;
+    }
+
+    public Integer getDealershipId() {
+        return dealershipId;
+    }
+
+    public void setDealershipId(Integer dealershipId) {
+        this.dealershipId = dealershipId;
+    }
+
+    // derived methods
+    // checks a vehicle against every filter that is set, text filters ignore case and surrounding spaces
+    // so the in-memory search answers the same as the SQL one, whichever spelling the client sent
+    public boolean matches(Vehicle vehicle) {
+        return (vin == null || vehicle.getVin() == vin)
+                && (make == null || make.equalsIgnoreCase(trim(vehicle.getMake())))
+                && (model == null || model.equalsIgnoreCase(trim(vehicle.getModel())))
+                && (color == null || color.equalsIgnoreCase(trim(vehicle.getColor())))
+                && (type == null || type.equalsIgnoreCase(trim(vehicle.getType())))
+                && (minPrice == null || vehicle.getPrice() >= minPrice)
+                && (maxPrice == null || vehicle.getPrice() <= maxPrice)
+                && (minYear == null || vehicle.getYear() >= minYear)
+                && (maxYear == null || vehicle.getYear() <= maxYear)
+                && (minMileage == null || vehicle.getMileage() >= minMileage)
+                && (maxMileage == null || vehicle.getMileage() <= maxMileage)
+                && (dealershipId == null || vehicle.getDealershipId() == dealershipId);
+    }
+
+    // helper methods
+    // the text filters are trimmed once when they are set, the SQL query and the in-memory search both use that value
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    // display methods
+    @Override
+    public String toString() {
+        StringJoiner filters = new StringJoiner(", ", "[", "]");
+        if (vin != null) filters.add("vin=" + vin);
+        if (make != null) filters.add("make=" + make);
+        if (model != null) filters.add("model=" + model);
+        if (color != null) filters.add("color=" + color);
+        if (type != null) filters.add("type=" + type);
+        if (minPrice != null) filters.add("minPrice=" + minPrice);
+        if (maxPrice != null) filters.add("maxPrice=" + maxPrice);
+        if (minYear != null) filters.add("minYear=" + minYear);
+        if (maxYear != null) filters.add("maxYear=" + maxYear);
+        if (minMileage != null) filters.add("minMileage=" + minMileage);
+        if (maxMileage != null) filters.add("maxMileage=" + maxMileage);
+        if (dealershipId != null) filters.add("dealershipId=" + dealershipId);
+        return filters.toString();
+    }
+}
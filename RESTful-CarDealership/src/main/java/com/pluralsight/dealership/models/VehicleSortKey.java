@@ -0,0 +1,52 @@
+package com.pluralsight.dealership.models;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+// the columns an inventory listing can be sorted by
+// the VIN is always the tie breaker so every vehicle has a unique position in the listing
+public enum VehicleSortKey {
+    PRICE("v.price"),
+    MILEAGE("v.mileage"),
+    YEAR("v.`year`"),
+    VIN("v.VIN");
+
+    private final String column;
+
+    VehicleSortKey(String column) {
+        this.column = column;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    // the value of this key for a vehicle, used to build the cursor and to sort in memory
+    public double valueOf(Vehicle vehicle) {
+        return switch (this) {
+            case PRICE -> vehicle.getPrice();
+            case MILEAGE -> vehicle.getMileage();
+            case YEAR -> vehicle.getYear();
+            case VIN -> vehicle.getVin();
+        };
+    }
+
+    // the listing order for this key, ties broken by the VIN in the same direction
+    public Comparator<Vehicle> comparator(boolean descending) {
+        Comparator<Vehicle> order = Comparator.<Vehicle>comparingDouble(this::valueOf).thenComparingInt(Vehicle::getVin);
+        return descending ? order.reversed() : order;
+    }
+
+    // accepts the sort query parameter, e.g. "price" or "-price"
+    public static VehicleSortKey fromParameter(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return VIN;
+        }
+        String name = sort.startsWith("-") ? sort.substring(1) : sort;
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cannot sort by " + name + ", use price, mileage, year or vin");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.data.DealershipShards;
+import com.pluralsight.dealership.data.InventoryChanges;
+import com.pluralsight.dealership.models.Vehicle;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// the service tag tells Spring that this class handles the business logic
+// finalizing a sale or lease touches three tables, so it all happens on one connection in one transaction:
+// either the contract, the has_Contract flag, the is_Sold flag and the inventory removal all happen, or none do
+// the transaction runs on the database of the dealership that has the vehicle, so the contract is written there too
+@Service
+public class ContractFinalizationService {
+    private static final Logger logger = LogManager.getLogger(ContractFinalizationService.class);
+
+    // claiming the vehicle first locks its inventory row, a second sale of the same VIN waits for us
+    // and then finds nothing left to claim, so it fails fast instead of selling the car twice
+    private static final String CLAIM_VEHICLE_QUERY = """
+            update car_dealership.inventory i
+            set i.is_Sold = true
+            where i.VIN = ? and i.is_Sold = false
+            """;
+    private static final String FLAG_CONTRACT_QUERY = """
+            update car_dealership.vehicles v
+            set v.has_Contract = true
+            where v.VIN = ?
+            """;
+    private static final String REMOVE_FROM_INVENTORY_QUERY = """
+            delete from car_dealership.inventory
+            where VIN = ?
+            """;
+
+    private final DealershipShards shards;
+    private final InventoryChanges inventoryChanges;
+
+    // the insert of the contract row itself, supplied by the sales or lease DAO
+    // it runs on the transaction's connection and must not commit or close it
+    @FunctionalInterface
+    public interface ContractInsert {
+        int insert(Connection connection) throws SQLException;
+    }
+
+    @Autowired
+    public ContractFinalizationService(DealershipShards shards, InventoryChanges inventoryChanges) {
+        this.shards = shards;
+        this.inventoryChanges = inventoryChanges;
+    }
+
+    // returns true when the contract was written and the vehicle left the lot
+    // returns false (and changes nothing) when the vehicle is already sold or any step fails
+    public boolean finalizeContract(Vehicle vehicle, ContractInsert contractInsert) {
+        int vin = vehicle.getVin();
+        try (Connection c = shards.forDealership(vehicle.getDealershipId()).getConnection()) {
+            c.setAutoCommit(false);
+            try {
+                if (executeForVin(c, CLAIM_VEHICLE_QUERY, vin) == 0) {
+                    c.rollback();
+                    logger.warn("❌ Vehicle {} is not available, it has already been sold or removed ❌", vin);
+                    return false;
+                }
+
+                if (contractInsert.insert(c) == 0) {
+                    c.rollback();
+                    logger.warn("❌ No contract was inserted for vehicle {} ❌", vin);
+                    return false;
+                }
+
+                executeForVin(c, FLAG_CONTRACT_QUERY, vin);
+                executeForVin(c, REMOVE_FROM_INVENTORY_QUERY, vin);
+                c.commit();
+
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+
+        } catch (SQLException e) {
+            logger.error("❌ Could not finalize the contract for vehicle {}: {} ❌", vin, e.getMessage());
+            return false;
+        }
+
+        // the vehicle is gone from the lot, tell the rest of the application
+        inventoryChanges.sold(vin, vehicle);
+        logger.info("✅ Successfully finalized the contract for vehicle {} ✅", vin);
+        return true;
+    }
+
+    private static int executeForVin(Connection c, String query, int vin) throws SQLException {
+        try (PreparedStatement s = c.prepareStatement(query)) {
+            s.setInt(1, vin);
+            return s.executeUpdate();
+        }
+    }
+}
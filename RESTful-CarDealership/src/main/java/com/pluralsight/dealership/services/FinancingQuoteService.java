@@ -0,0 +1,70 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.models.AnnuityFactors;
+import com.pluralsight.dealership.models.LeaseContract;
+import com.pluralsight.dealership.models.QuoteRequest;
+import com.pluralsight.dealership.models.QuoteResponse;
+import com.pluralsight.dealership.models.QuoteTerm;
+import com.pluralsight.dealership.models.SalesContract;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// the service tag tells Spring that this class handles the business logic
+// quotes monthly payments for many vehicles at once, e.g. every listing on a search results page
+// each (rate, term) pair's payment per $1 is looked up once, then each price is one multiply
+// the loops are plain passes over double[] with no branches or calls inside, which the JIT can vectorize
+@Service
+public class FinancingQuoteService {
+    private final double standardLoanFactor = AnnuityFactors.factor(SalesContract.STANDARD_LOAN);
+    private final double smallLoanFactor = AnnuityFactors.factor(SalesContract.SMALL_LOAN);
+    private final double leaseFactor = AnnuityFactors.factor(LeaseContract.LEASE_TERM);
+
+    // throws IllegalArgumentException for a term that can't be priced
+    public QuoteResponse quote(QuoteRequest request) {
+        double[] prices = request.prices() == null ? new double[0] : request.prices();
+        List<QuoteTerm> terms = request.terms() == null ? List.of() : request.terms();
+        for (QuoteTerm term : terms) {
+            if (term == null) {
+                throw new IllegalArgumentException("terms can't contain null");
+            }
+            term.validate();
+        }
+
+        double[][] termPayments = new double[terms.size()][];
+        for (int t = 0; t < terms.size(); t++) {
+            termPayments[t] = quote(prices, terms.get(t));
+        }
+
+        return new QuoteResponse(salesPayments(prices), leasePayments(prices), terms, termPayments);
+    }
+
+    // the financed sales payment for each price, using the same cutoff and terms as SalesContract
+    public double[] salesPayments(double[] prices) {
+        double[] payments = new double[prices.length];
+        double cutoff = SalesContract.FINANCING_CUTOFF;
+        for (int i = 0; i < prices.length; i++) {
+            // a select rather than an if, so the loop stays branch-free
+            payments[i] = prices[i] * (prices[i] >= cutoff ? standardLoanFactor : smallLoanFactor);
+        }
+        return payments;
+    }
+
+    // the lease payment for each price, using the same term as LeaseContract
+    public double[] leasePayments(double[] prices) {
+        return scale(prices, leaseFactor);
+    }
+
+    // the payment for each price on any term
+    public double[] quote(double[] prices, QuoteTerm term) {
+        return scale(prices, AnnuityFactors.factor(term));
+    }
+
+    private static double[] scale(double[] prices, double factor) {
+        double[] payments = new double[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            payments[i] = prices[i] * factor;
+        }
+        return payments;
+    }
+}
@@ -0,0 +1,241 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.data.InventoryChangeEvent;
+import com.pluralsight.dealership.data.InventoryChanges;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// the service tag tells Spring to keep one live feed of inventory changes for the whole application
+// every subscriber is an open Server-Sent Events response plus a small queue of events it hasn't been sent yet,
+// no thread waits on an idle subscriber: a virtual thread is started only while a queue has something to send
+@Service
+public class InventoryFeed {
+    private static final Logger logger = LogManager.getLogger(InventoryFeed.class);
+
+    private final InventoryChanges inventoryChanges;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    // the most recent events by version, so a client that reconnects can pick up where it left off
+    private final InventoryChangeEvent[] replay;
+    // the newest version in the replay buffer, the shared version goes up before the event reaches us,
+    // so a client subscribing in between is only caught up to here and gets the rest live
+    private long lastVersion;
+    // keeps new events and new subscribers from passing each other, nothing slow happens while it is held
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Autowired
+    public InventoryFeed(InventoryChanges inventoryChanges,
+                         @Value("${inventory.feed.buffer-size:256}") int bufferSize,
+                         @Value("${inventory.feed.replay-size:1024}") int replaySize,
+                         @Value("${inventory.feed.timeout-millis:1800000}") long timeoutMillis) {
+        this.inventoryChanges = inventoryChanges;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.replay = new InventoryChangeEvent[replaySize];
+    }
+
+    // opens a feed for one client, lastEventId is the id of the last event it saw (null for a new client)
+    // when those events are no longer kept, or came from before a restart, the client is sent a reset event
+    // and should reload the inventory before applying anything else
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = newEmitter();
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        lock.lock();
+        try {
+            long current = lastVersion;
+            long lastSeen = lastSeenVersion(lastEventId);
+            if (lastEventId != null && (lastSeen < 0 || lastSeen > current
+                    || current - lastSeen > Math.min(replay.length, bufferSize))) {
+                subscriber.reset = current;
+            } else if (lastEventId != null) {
+                for (long version = lastSeen + 1; version <= current; version++) {
+                    subscriber.offer(replay[(int) (version % replay.length)]);
+                }
+            }
+            subscribers.add(subscriber);
+        } finally {
+            lock.unlock();
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // the event listener tag has Spring call this for every committed inventory change
+    // the change is only queued here, the sending happens on the subscriber's own virtual thread
+    @EventListener
+    public void onInventoryChange(InventoryChangeEvent change) {
+        lock.lock();
+        try {
+            replay[(int) (change.version() % replay.length)] = change;
+            lastVersion = Math.max(lastVersion, change.version());
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.offer(change)) {
+                    evict(subscriber);
+                    continue;
+                }
+                schedule(subscriber);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // proxies and load balancers drop connections that stay silent, a comment line keeps idle feeds open
+    // and is also how we notice clients that went away without closing the connection
+    @Scheduled(fixedDelayString = "${inventory.feed.heartbeat-millis:30000}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.isEmpty()) {
+                senders.execute(() -> subscriber.send(SseEmitter.event().comment("heartbeat")));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+
+    // helper methods
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        do {
+            if (subscriber.reset >= 0) {
+                long version = subscriber.reset;
+                subscriber.reset = -1;
+                subscriber.send(SseEmitter.event()
+                        .id(eventId(version))
+                        .name("reset")
+                        .data(Map.of("version", version), MediaType.APPLICATION_JSON));
+            }
+
+            InventoryChangeEvent change;
+            while ((change = subscriber.poll()) != null) {
+                if (!subscriber.send(SseEmitter.event()
+                        .id(eventId(change.version()))
+                        .name(change.type().name().toLowerCase(Locale.ROOT))
+                        .data(change, MediaType.APPLICATION_JSON))) {
+                    return;
+                }
+            }
+            subscriber.draining.set(false);
+            // an event queued after the last poll but before the flag was cleared would otherwise wait for the next one
+        } while (!subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    // a subscriber that can't keep up is closed rather than buffered without limit,
+    // it reconnects with its last event id and is caught up from the replay buffer (or told to reset)
+    private void evict(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        subscriber.emitter.complete();
+        logger.warn("❌ Closed a slow inventory feed subscriber, {} events were waiting ❌", bufferSize);
+    }
+
+    // event ids are epoch-version so ids from before a restart are recognized and answered with a reset
+    private String eventId(long version) {
+        return inventoryChanges.getEpoch() + "-" + version;
+    }
+
+    private long lastSeenVersion(String lastEventId) {
+        if (lastEventId == null) {
+            return -1;
+        }
+        String prefix = inventoryChanges.getEpoch() + "-";
+        if (!lastEventId.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<InventoryChangeEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // the version to send in a reset event, -1 when no reset is due
+        private volatile long reset = -1;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private boolean offer(InventoryChangeEvent change) {
+            if (queued.incrementAndGet() > bufferSize) {
+                queued.decrementAndGet();
+                return false;
+            }
+            queue.add(change);
+            return true;
+        }
+
+        private InventoryChangeEvent poll() {
+            InventoryChangeEvent change = queue.poll();
+            if (change != null) {
+                queued.decrementAndGet();
+            }
+            return change;
+        }
+
+        // false when the client has gone away, the emitter's callbacks then remove the subscriber
+        private boolean send(SseEmitter.SseEventBuilder event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(this);
+                queue.clear();
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.data.DealershipDAO;
+import com.pluralsight.dealership.data.DealershipShards;
+import com.pluralsight.dealership.data.InventoryChangeEvent;
+import com.pluralsight.dealership.data.InventoryChangeLog;
+import com.pluralsight.dealership.data.InventoryChanges;
+import com.pluralsight.dealership.models.InventoryDelta;
+import com.pluralsight.dealership.models.Vehicle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// the service tag tells Spring that this class handles the business logic
+// answers "what changed since I last synced" from the change log, and falls back to the whole inventory
+// when the client is new, was last synced before a restart, or is older than the history that is kept
+@Service
+public class InventorySyncService {
+
+    private final DealershipDAO dealershipDAO;
+    private final InventoryChangeLog changeLog;
+    private final InventoryChanges inventoryChanges;
+    private final DealershipShards shards;
+
+    @Autowired
+    public InventorySyncService(DealershipDAO dealershipDAO, InventoryChangeLog changeLog, InventoryChanges inventoryChanges,
+                                DealershipShards shards) {
+        this.dealershipDAO = dealershipDAO;
+        this.changeLog = changeLog;
+        this.inventoryChanges = inventoryChanges;
+        this.shards = shards;
+    }
+
+    // since is the version from the last sync (epoch-version, as returned by this method), null for a first sync
+    public InventoryDelta changesSince(String since) {
+        // read the version before anything else: a change made while we work is sent again next time,
+        // which is harmless because applying a delta twice gives the same result
+        long current = inventoryChanges.getVersion();
+        long version = parseVersion(since);
+        if (version < 0 || version > current) {
+            return snapshot(current);
+        }
+        return delta(current, changeLog.since(version));
+    }
+
+    public InventoryDelta changesSince(Instant since) {
+        long current = inventoryChanges.getVersion();
+        return delta(current, changeLog.since(since));
+    }
+
+    // helper methods
+    private InventoryDelta delta(long current, List<InventoryChangeEvent> changes) {
+        if (changes == null) {
+            return snapshot(current);
+        }
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        for (InventoryChangeEvent change : changes) {
+            if (change.type() == InventoryChangeEvent.Type.ADDED) {
+                vehicles.add(change.vehicle());
+            } else {
+                // sold and removed vehicles both leave the client's copy of the lot
+                removed.add(change.vin());
+            }
+        }
+        return new InventoryDelta(token(current), false, vehicles, removed);
+    }
+
+    // read from the primaries, a replica could be missing changes the token says the client has
+    private InventoryDelta snapshot(long current) {
+        return new InventoryDelta(token(current), true, shards.onPrimaries(dealershipDAO::getAllVehicles), List.of());
+    }
+
+    private String token(long version) {
+        return inventoryChanges.getEpoch() + "-" + version;
+    }
+
+    // -1 for anything that isn't a version from this run of the application
+    private long parseVersion(String since) {
+        String prefix = inventoryChanges.getEpoch() + "-";
+        if (since == null || !since.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(since.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
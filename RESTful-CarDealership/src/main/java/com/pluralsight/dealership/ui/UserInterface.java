@@ -319,9 +319,11 @@ public class UserInterface {
 
                 SalesContract newContract = new SalesContract(dateOfPurchase, customerName, customerEmail, purchasedVehicle, 0, 0, 0, userFinanced);
 
+                // the contract service also takes the vehicle off the lot in the same transaction
                 if (newContract != null) {
-                    salesContractDAO.addSalesContract(newContract);
-                    dealershipDAO.removeVehicle(newContract.getVehicleSold().getVin());
+                    if (!salesContractDAO.addSalesContract(newContract)) {
+                        System.out.println("This vehicle is no longer available");
+                    }
                     break;
                 } else {
                     System.out.println("Could not complete a new sales contract");
@@ -371,9 +373,11 @@ public class UserInterface {
 
                 LeaseContract newContract = new LeaseContract(dateOfPurchase, customerName, customerEmail, purchasedVehicle, 0, 0);
 
+                // the contract service also takes the vehicle off the lot in the same transaction
                 if (newContract != null) {
-                    leaseContractDAO.addLeaseContract(newContract);
-                    dealershipDAO.removeVehicle(newContract.getVehicleSold().getVin());
+                    if (!leaseContractDAO.addLeaseContract(newContract)) {
+                        System.out.println("This vehicle is no longer available");
+                    }
                     break;
                 } else {
                     System.out.println("Could not complete a new sales contract");
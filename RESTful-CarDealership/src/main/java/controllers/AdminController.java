@@ -0,0 +1,46 @@
+package controllers;
+
+import com.pluralsight.dealership.data.DealershipShards;
+import com.pluralsight.dealership.data.PoolStats;
+import com.pluralsight.dealership.data.ReplicaStatus;
+import com.pluralsight.dealership.data.SearchCacheStats;
+import com.pluralsight.dealership.data.SearchResultCache;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+// endpoints for operations staff to look inside the running application
+@RestController
+public class AdminController {
+
+    private final DealershipShards shards;
+    private final SearchResultCache searchCache;
+
+    public AdminController(DealershipShards shards, SearchResultCache searchCache) {
+        this.shards = shards;
+        this.searchCache = searchCache;
+    }
+
+    // active/idle connections, callers waiting, and recent wait-time percentiles for every connection pool:
+    // the default database's, then each shard's primary and replica pools
+    // when latency spikes this tells us whether requests are waiting on a pool or on MySQL
+    @RequestMapping(path="/admin/pool", method= RequestMethod.GET)
+    public List<PoolStats> getPoolStats(){
+        return shards.poolStats();
+    }
+
+    // every read replica with how far behind its primary it was at the last health check
+    // searches only go to the ones marked healthy, the others are read from the primary
+    @RequestMapping(path="/admin/replicas", method= RequestMethod.GET)
+    public List<ReplicaStatus> getReplicaStatus(){
+        return shards.replicaStatus();
+    }
+
+    // hits, misses, evictions and invalidations of the search result cache, and how full it is
+    @RequestMapping(path="/admin/cache", method= RequestMethod.GET)
+    public SearchCacheStats getSearchCacheStats(){
+        return searchCache.stats();
+    }
+}
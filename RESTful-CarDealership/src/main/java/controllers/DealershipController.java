@@ -1,90 +1,299 @@
 package controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pluralsight.dealership.data.DealershipDAO;
+import com.pluralsight.dealership.data.DealershipShards;
+import com.pluralsight.dealership.data.InventoryChanges;
+import com.pluralsight.dealership.data.VehicleTermIndex;
+import com.pluralsight.dealership.models.BulkInsertResult;
+import com.pluralsight.dealership.models.FuzzySearchResult;
+import com.pluralsight.dealership.models.InventoryDelta;
+import com.pluralsight.dealership.models.SimilarVehicle;
+import com.pluralsight.dealership.models.Suggestion;
 import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleFacets;
+import com.pluralsight.dealership.models.VehicleFilter;
+import com.pluralsight.dealership.models.VehiclePage;
+import com.pluralsight.dealership.models.VehiclePageRequest;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.models.VehicleSortKey;
+import com.pluralsight.dealership.services.InventorySyncService;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
 // settings a rest controller so this application can interact to the user
 @RestController
 public class DealershipController {
     
+    // how often the export flushes what it has written so far to the client
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
     private final DealershipDAO dealershipDAO;
+    private final ObjectMapper objectMapper;
+    private final InventoryChanges inventoryChanges;
+    private final InventorySyncService inventorySyncService;
+    private final DealershipShards shards;
 
-    public DealershipController(DealershipDAO dealershipDAO) {
+    public DealershipController(DealershipDAO dealershipDAO, ObjectMapper objectMapper, InventoryChanges inventoryChanges,
+                                InventorySyncService inventorySyncService, DealershipShards shards) {
         this.dealershipDAO = dealershipDAO;
+        this.objectMapper = objectMapper;
+        this.inventoryChanges = inventoryChanges;
+        this.inventorySyncService = inventorySyncService;
+        this.shards = shards;
     }
     
     // this annotation describes the type of requests that a user can ask the server
     // the path tag describes the URI - identifies the 'route' of where the data is located
     // the method tag describes the process that is happening in the request (GET = select (MySQL) = getting data from the server
     // the path variable tag describes the variable being taken from the path to use as a search criteria
+    // every GET sends an ETag for the current inventory version, when a client sends it back in If-None-Match
+    // and nothing has changed since, checkNotModified answers 304 Not Modified before the database is touched
+    // otherwise the body is read from the primaries, a replica could still be behind the version in the ETag
     @RequestMapping(path="/inventory/ByVin/{vin}", method= RequestMethod.GET)
-    public Vehicle getVehicleByVin(@PathVariable int vin){
-        return dealershipDAO.getByVin(vin);
+    public Vehicle getVehicleByVin(@PathVariable int vin, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByVin(vin));
+    }
+
+
+    // "similar cars" for the vehicle being looked at: the closest unsold vehicles in year, mileage and price
+    // make and type optionally keep the results to one make or type, e.g. /inventory/Similar/123456789?type=SUV&limit=6
+    @RequestMapping(path="/inventory/Similar/{vin}", method= RequestMethod.GET)
+    public List<SimilarVehicle> getSimilarVehicles(@PathVariable int vin, @RequestParam(required=false) String make,
+                                                   @RequestParam(required=false) String type,
+                                                   @RequestParam(defaultValue="10") int limit, WebRequest request){
+        if (request.checkNotModified(inventoryChanges.getETag())) {
+            return null;
+        }
+        List<SimilarVehicle> similar = shards.onPrimaries(() ->
+                dealershipDAO.similarVehicles(vin, make, type, Math.max(1, Math.min(limit, 100))));
+        if (similar == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Vehicle " + vin + " is not in the inventory");
+        }
+        return similar;
     }
     
-    @RequestMapping(path="/inventory/ByPrice/{minPrice, maxPrice}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByPrice(@PathVariable double minPrice, double maxPrice){
-        return dealershipDAO.getByPrice(minPrice, maxPrice);
+    // one endpoint for any combination of filters, e.g. /inventory/search?color=red&type=SUV&maxPrice=30000&maxMileage=50000
+    // Spring fills the criteria object from the query string and the DAO turns it into a single query
+    @RequestMapping(path="/inventory/search", method= RequestMethod.GET)
+    public List<Vehicle> searchVehicles(VehicleSearchCriteria criteria, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.search(criteria));
+    }
+
+    // only the vins of the matching vehicles, for analytics jobs that join them with their own data
+    // takes the same filters as /inventory/search, e.g. /inventory/vins?minPrice=15000&maxPrice=30000&maxMileage=60000&minYear=2018
+    @RequestMapping(path="/inventory/vins", method= RequestMethod.GET)
+    public int[] searchVehicleVins(VehicleSearchCriteria criteria, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.searchVins(criteria));
+    }
+
+    // combined filters with several values per field and exclusions, values of a field are OR'ed and the fields AND'ed
+    // e.g. /inventory/filter?make=Ford&color=red,blue&type=Truck or /inventory/filter?type=SUV&notMake=Jeep&year=2021,2022
+    @RequestMapping(path="/inventory/filter", method= RequestMethod.GET)
+    public List<Vehicle> filterVehicles(VehicleFilter filter, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.filter(filter));
+    }
+
+    // the first few vehicles in one order for the homepage widgets, takes the same filters as /inventory/search
+    // sort is price, mileage, year or vin with a leading '-' for descending, limit is at most 100
+    // e.g. /inventory/top?type=SUV&sort=price&limit=10 (10 cheapest SUVs) or /inventory/top?sort=-year (newest arrivals)
+    @RequestMapping(path="/inventory/top", method= RequestMethod.GET)
+    public List<Vehicle> topVehicles(VehicleSearchCriteria criteria, @RequestParam(defaultValue="price") String sort,
+                                     @RequestParam(defaultValue="10") int limit, WebRequest request){
+        try {
+            return ifModified(request, () -> dealershipDAO.top(criteria, VehicleSortKey.fromParameter(sort),
+                    sort.startsWith("-"), Math.max(1, Math.min(limit, 100))));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // the paged listing of the inventory, takes the same filters as /inventory/search plus sort, limit and cursor
+    // e.g. /inventory?type=SUV&sort=-year&limit=25 then /inventory?type=SUV&sort=-year&limit=25&cursor=<nextCursor>
+    @RequestMapping(path="/inventory", method= RequestMethod.GET)
+    public VehiclePage getInventoryPage(VehicleSearchCriteria criteria, VehiclePageRequest pageRequest, WebRequest request){
+        try {
+            return ifModified(request, () -> dealershipDAO.searchPage(criteria, pageRequest));
+        } catch (IllegalArgumentException e) {
+            // a bad sort key or a cursor from another listing is the client's mistake, not the server's
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // streams the inventory as newline-delimited JSON (one vehicle per line) for the partner feeds
+    // takes the same filters as /inventory/search, e.g. /inventory/export?make=Ford
+    // each vehicle is written as soon as its row is read, so the first line goes out right away
+    // and the server never holds the whole inventory in memory
+    @RequestMapping(path="/inventory/export", method= RequestMethod.GET, produces="application/x-ndjson")
+    public StreamingResponseBody exportInventory(VehicleSearchCriteria criteria, WebRequest request){
+        if (request.checkNotModified(inventoryChanges.getETag())) {
+            return null;
+        }
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // lines are separated by our own '\n' instead of Jackson's default space between root values
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                // the stream is written on another thread, so the primaries are picked there
+                shards.onPrimaries(() -> dealershipDAO.exportVehicles(criteria, vehicle -> {
+                    try {
+                        generator.writeObject(vehicle);
+                        generator.writeRaw('\n');
+                        if (++written[0] == 1 || written[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+        };
+    }
+
+    // typo-tolerant search, e.g. /inventory/fuzzy?q=Toyta or /inventory/fuzzy?q=sivic&field=model
+    // field is make, model, color or type (all four when left out), matches come back closest first
+    @RequestMapping(path="/inventory/fuzzy", method= RequestMethod.GET)
+    public FuzzySearchResult fuzzySearchVehicles(@RequestParam String q,
+                                                 @RequestParam(required=false) String field,
+                                                 @RequestParam(defaultValue="50") int limit, WebRequest request){
+        try {
+            return ifModified(request, () -> dealershipDAO.fuzzySearch(q, VehicleTermIndex.Field.fromParameter(field),
+                    Math.max(0, limit)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // suggestions for the search box as the user types, e.g. /inventory/autocomplete?prefix=to&field=make
+    // answered from memory, so calling it on every keystroke never reaches MySQL
+    @RequestMapping(path="/inventory/autocomplete", method= RequestMethod.GET)
+    public List<Suggestion> autocomplete(@RequestParam String prefix, @RequestParam(required=false) String field,
+                                         @RequestParam(defaultValue="10") int limit, WebRequest request){
+        try {
+            return ifModified(request, () -> dealershipDAO.autocomplete(prefix, VehicleTermIndex.Field.fromParameter(field),
+                    Math.min(limit, 100)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // counts per make, model, color, type and year plus min/max/average price and mileage for the search UI
+    // takes the same filters as /inventory/search, e.g. /inventory/facets?type=SUV&maxPrice=30000
+    @RequestMapping(path="/inventory/facets", method= RequestMethod.GET)
+    public VehicleFacets getInventoryFacets(VehicleSearchCriteria criteria, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.facets(criteria));
+    }
+
+    // only what changed since the client's last sync, e.g. /inventory/changes?since=<version from the last response>
+    // or /inventory/changes?sinceTime=2025-06-01T12:00:00Z, with neither (or a version that is too old) the whole
+    // inventory comes back with snapshot=true
+    @RequestMapping(path="/inventory/changes", method= RequestMethod.GET)
+    public InventoryDelta getInventoryChanges(@RequestParam(required=false) String since,
+                                              @RequestParam(required=false) Instant sinceTime, WebRequest request){
+        return ifModified(request, () -> sinceTime != null
+                ? inventorySyncService.changesSince(sinceTime)
+                : inventorySyncService.changesSince(since));
+    }
+
+    // every value of a range is its own path segment, e.g. /inventory/ByPrice/15000/30000
+    @RequestMapping(path="/inventory/ByPrice/{minPrice}/{maxPrice}", method= RequestMethod.GET)
+    public List<Vehicle> getVehiclesByPrice(@PathVariable double minPrice, @PathVariable double maxPrice, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByPrice(minPrice, maxPrice));
     }
     
     @RequestMapping(path="/inventory/ByMake/{make}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByMake(@PathVariable String make){
-        return dealershipDAO.getByMake(make);
+    public List<Vehicle> getVehiclesByMake(@PathVariable String make, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByMake(make));
     }
     
-    @RequestMapping(path="/inventory/ByModel{model}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByModel(@PathVariable String model){
-        return dealershipDAO.getByModel(model);
+    @RequestMapping(path="/inventory/ByModel/{model}", method= RequestMethod.GET)
+    public List<Vehicle> getVehiclesByModel(@PathVariable String model, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByModel(model));
     }
 
-    @RequestMapping(path="/inventory/ByMakeANDModel{make, model}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByMakeModel(@PathVariable String make, String model){
-        return dealershipDAO.getByMakeModel(make, model);
+    @RequestMapping(path="/inventory/ByMakeANDModel/{make}/{model}", method= RequestMethod.GET)
+    public List<Vehicle> getVehiclesByMakeModel(@PathVariable String make, @PathVariable String model, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByMakeModel(make, model));
     }
 
-    @RequestMapping(path="/inventory/ByYear/{minYear, maxYear}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByYear(@PathVariable double minYear, double maxYear){
-        return dealershipDAO.getByYear(minYear, maxYear);
+    @RequestMapping(path="/inventory/ByYear/{minYear}/{maxYear}", method= RequestMethod.GET)
+    public List<Vehicle> getVehiclesByYear(@PathVariable double minYear, @PathVariable double maxYear, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByYear(minYear, maxYear));
     }
 
     @RequestMapping(path="/inventory/ByColor/{color}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByColor(@PathVariable String color){
-        return dealershipDAO.getByColor(color);
+    public List<Vehicle> getVehiclesByColor(@PathVariable String color, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByColor(color));
     }
 
-    @RequestMapping(path="/inventory/ByMileage/{minMileage, maxMileage}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByMileage(@PathVariable double minMileage, double maxMileage){
-        return dealershipDAO.getByMileage(minMileage, maxMileage);
+    @RequestMapping(path="/inventory/ByMileage/{minMileage}/{maxMileage}", method= RequestMethod.GET)
+    public List<Vehicle> getVehiclesByMileage(@PathVariable double minMileage, @PathVariable double maxMileage, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByMileage(minMileage, maxMileage));
     }
 
     @RequestMapping(path="/inventory/ByVehicleType/{vehicleType}", method= RequestMethod.GET)
-    public List<Vehicle> getVehiclesByVehicleType(@PathVariable String vehicleType){
-        return dealershipDAO.getByVehicleType(vehicleType);
+    public List<Vehicle> getVehiclesByVehicleType(@PathVariable String vehicleType, WebRequest request){
+        return ifModified(request, () -> dealershipDAO.getByVehicleType(vehicleType));
     }
 
     // the request method function POST = insert (MySQL) = creating a new data point
     // the response status annotation gives the user an HTTP status code to communicate what happened with the request
     // the value holds the status code: 200s = success | 400s = client errors | 500s = server error
     // the request body takes user input from the body of the request when it sends to the server
+    // ?dealershipId= picks the dealership (and so the database) the vehicle goes to, without it the vehicle's own
+    // dealershipId is used, and without that the default dealership's
     @RequestMapping(path="/inventory/AddVehicle/{newVehicle}", method= RequestMethod.POST)
     @ResponseStatus(value = HttpStatus.CREATED)
-    public Vehicle addNewVehicle(@RequestBody Vehicle newVehicle){
-        return dealershipDAO.addVehicle(newVehicle);
+    public Vehicle addNewVehicle(@RequestBody Vehicle newVehicle, @RequestParam(required=false) Integer dealershipId){
+        return dealershipDAO.addVehicle(dealershipId, newVehicle);
+    }
+
+    // bulk upload for auction intake days, the body is a JSON array of vehicles
+    // the response lists how many were added and which rows failed and why
+    @RequestMapping(path="/inventory/AddVehicles", method= RequestMethod.POST, consumes="application/json")
+    public BulkInsertResult addNewVehicles(@RequestBody List<Vehicle> newVehicles,
+                                           @RequestParam(required=false) Integer dealershipId){
+        return dealershipDAO.addVehicles(dealershipId, newVehicles.iterator());
+    }
+
+    // the same upload as a newline-delimited JSON file (one vehicle per line)
+    // the file is read as it arrives, so it never has to fit in memory
+    @RequestMapping(path="/inventory/AddVehicles", method= RequestMethod.POST, consumes="application/x-ndjson")
+    public BulkInsertResult importVehicles(InputStream vehicleFile, @RequestParam(required=false) Integer dealershipId)
+            throws IOException {
+        try (MappingIterator<Vehicle> newVehicles = objectMapper.readerFor(Vehicle.class).readValues(vehicleFile)) {
+            return dealershipDAO.addVehicles(dealershipId, newVehicles);
+        }
     }
 
     @RequestMapping(path="/inventory/RemoveVehicle/{vin}", method= RequestMethod.DELETE)
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public Vehicle removeVehicle(@RequestBody int vin){
-        return dealershipDAO.removeVehicle(vin);
+    public Vehicle removeVehicle(@RequestBody int vin, @RequestParam(required=false) Integer dealershipId){
+        return dealershipDAO.removeVehicle(dealershipId, vin);
     }
 
     @RequestMapping(path="/inventory/UpdateVehicle/{updateVehicle}", method= RequestMethod.PUT)
-    public Vehicle updateVehicle(@RequestBody Vehicle updateVehicle){
-        return dealershipDAO.updateVehicle(updateVehicle);
+    public Vehicle updateVehicle(@RequestBody Vehicle updateVehicle, @RequestParam(required=false) Integer dealershipId){
+        return dealershipDAO.updateVehicle(dealershipId, updateVehicle);
+    }
+
+    // helper methods
+    // null when the client's copy is still current (checkNotModified has set the 304), otherwise the read
+    private <T> T ifModified(WebRequest request, Supplier<T> read) {
+        if (request.checkNotModified(inventoryChanges.getETag())) {
+            return null;
+        }
+        return shards.onPrimaries(read);
     }
-    
 }
@@ -0,0 +1,28 @@
+package controllers;
+
+import com.pluralsight.dealership.services.InventoryFeed;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// pushes inventory changes to the showroom displays and the pricing service as they happen, instead of them polling
+@RestController
+public class InventoryFeedController {
+
+    private final InventoryFeed inventoryFeed;
+
+    public InventoryFeedController(InventoryFeed inventoryFeed) {
+        this.inventoryFeed = inventoryFeed;
+    }
+
+    // a Server-Sent Events stream with one event per change: added, sold or removed, the data is the change as JSON
+    // browsers' EventSource reconnects on its own and sends the Last-Event-ID header, so missed changes are replayed
+    // a reset event means the missed changes are gone: reload the inventory, then keep applying events
+    @RequestMapping(path="/inventory/feed", method= RequestMethod.GET, produces= MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getInventoryFeed(@RequestHeader(name="Last-Event-ID", required=false) String lastEventId){
+        return inventoryFeed.subscribe(lastEventId);
+    }
+}
@@ -0,0 +1,35 @@
+package controllers;
+
+import com.pluralsight.dealership.models.QuoteRequest;
+import com.pluralsight.dealership.models.QuoteResponse;
+import com.pluralsight.dealership.services.FinancingQuoteService;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+// financing quotes for the website, so a monthly payment can be shown next to every listing
+@RestController
+public class QuoteController {
+
+    private final FinancingQuoteService financingQuoteService;
+
+    public QuoteController(FinancingQuoteService financingQuoteService) {
+        this.financingQuoteService = financingQuoteService;
+    }
+
+    // quotes a whole page of listings in one call
+    // body: {"prices": [18500, 8900, ...], "terms": [{"interestRate": 0.05, "loanLength": 5}]}
+    // the sales and lease payments always use the dealership's standard terms, "terms" is optional
+    @RequestMapping(path="/quotes/batch", method= RequestMethod.POST)
+    public QuoteResponse getBatchQuotes(@RequestBody QuoteRequest quoteRequest){
+        try {
+            return financingQuoteService.quote(quoteRequest);
+        } catch (IllegalArgumentException e) {
+            // a zero-year loan or a negative rate would come back as Infinity or NaN payments
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
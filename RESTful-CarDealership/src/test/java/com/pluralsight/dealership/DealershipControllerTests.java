@@ -0,0 +1,95 @@
+package com.pluralsight.dealership;
+
+import com.pluralsight.dealership.data.DealershipDAO;
+import com.pluralsight.dealership.data.DealershipShards;
+import com.pluralsight.dealership.data.InstrumentedDataSource;
+import com.pluralsight.dealership.data.InventoryChanges;
+import com.pluralsight.dealership.data.SearchResultCache;
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.services.FinancingQuoteService;
+import com.pluralsight.dealership.services.InventoryFeed;
+import com.pluralsight.dealership.services.InventorySyncService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// every controller is found by the application's own component scan and mapped, like when it runs,
+// with the beans behind them mocked
+@WebMvcTest
+class DealershipControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@MockitoBean
+	private DealershipDAO dealershipDAO;
+	@MockitoBean
+	private InventoryChanges inventoryChanges;
+	@MockitoBean
+	private InventorySyncService inventorySyncService;
+	@MockitoBean
+	private InstrumentedDataSource dataSource;
+	@MockitoBean
+	private DealershipShards shards;
+	@MockitoBean
+	private SearchResultCache searchCache;
+	@MockitoBean
+	private InventoryFeed inventoryFeed;
+	@MockitoBean
+	private FinancingQuoteService financingQuoteService;
+
+	@BeforeEach
+	void setUp() {
+		when(inventoryChanges.getETag()).thenReturn("\"abc-7\"");
+		when(shards.onPrimaries(any())).thenAnswer(read -> read.<Supplier<?>>getArgument(0).get());
+	}
+
+	@Test
+	void searchTakesItsFiltersFromTheQueryString() throws Exception {
+		Vehicle rav4 = new Vehicle(222222222, 2021, "Toyota", "RAV4", "SUV", "Red", 30000, 26000, false);
+		when(dealershipDAO.search(argThat((VehicleSearchCriteria criteria) -> "SUV".equals(criteria.getType())
+				&& "red".equals(criteria.getColor()) && criteria.getMaxPrice() == 30000)))
+				.thenReturn(List.of(rav4));
+
+		mockMvc.perform(get("/inventory/search").param("type", "SUV").param("color", "red").param("maxPrice", "30000"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].vin").value(222222222))
+				.andExpect(jsonPath("$[0].model").value("RAV4"));
+		// the body goes out with the ETag, so it is read from the primaries and not a replica behind it
+		verify(shards).onPrimaries(any());
+	}
+
+	@Test
+	void aClientWithTheCurrentETagGetsNotModifiedWithoutAQuery() throws Exception {
+		mockMvc.perform(get("/inventory/search").param("make", "Toyota").header("If-None-Match", "\"abc-7\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", "\"abc-7\""))
+				.andExpect(content().string(""));
+		verifyNoInteractions(dealershipDAO);
+
+		// once the inventory has changed the same request is answered again, with the new ETag
+		when(inventoryChanges.getETag()).thenReturn("\"abc-8\"");
+		mockMvc.perform(get("/inventory/search").param("make", "Toyota").header("If-None-Match", "\"abc-7\""))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"abc-8\""));
+		verify(dealershipDAO).search(any());
+	}
+}
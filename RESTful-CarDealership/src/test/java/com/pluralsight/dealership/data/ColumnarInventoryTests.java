@@ -0,0 +1,82 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarInventoryTests {
+
+	private static final String[] MAKES = {"Toyota", "Ford", "Honda", "Kia"};
+	private static final String[] COLORS = {"Red", "Blue", "Black"};
+
+	@Test
+	void bothScansAgreeWithTheCriteria() {
+		List<Vehicle> vehicles = vehicles(1003);
+		for (ColumnScan scan : List.of(new ColumnScan(), ColumnScan.create())) {
+			ColumnarInventory inventory = new ColumnarInventory("columnar", scan);
+			inventory.load(vehicles);
+			Random random = new Random(7);
+			for (int i = 0; i < 50; i++) {
+				VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+				criteria.setMinPrice(5000.0 + random.nextInt(20000));
+				criteria.setMaxPrice(criteria.getMinPrice() + random.nextInt(30000));
+				criteria.setMaxMileage(random.nextDouble() * 150000);
+				criteria.setMinYear(2005 + random.nextInt(20));
+				if (random.nextBoolean()) {
+					criteria.setMake(MAKES[random.nextInt(MAKES.length)].toUpperCase());
+				}
+
+				assertEquals(vins(vehicles.stream().filter(criteria::matches).toList()),
+						vins(inventory.search(criteria)), scan.describe() + " " + criteria);
+			}
+			inventory.close();
+		}
+	}
+
+	@Test
+	void removalsMoveTheLastRowAndUnknownValuesMatchNothing() {
+		ColumnarInventory inventory = new ColumnarInventory("columnar", ColumnScan.create());
+		List<Vehicle> vehicles = vehicles(10);
+		inventory.load(vehicles);
+
+		inventory.remove(vehicles.get(2).getVin());
+		inventory.put(new Vehicle(vehicles.get(5).getVin(), 2024, "Honda", "Civic", "Sedan", "Red", 10, 30000, false));
+
+		assertEquals(9, inventory.size());
+		assertEquals(0, inventory.matchingVins(criteriaForVin(vehicles.get(2).getVin())).length);
+		assertEquals(30000, inventory.search(criteriaForVin(vehicles.get(5).getVin())).get(0).getPrice());
+		assertEquals(vehicles.get(9).getVin(), inventory.matchingVins(criteriaForVin(vehicles.get(9).getVin()))[0]);
+
+		VehicleSearchCriteria lamborghini = new VehicleSearchCriteria();
+		lamborghini.setMake("Lamborghini");
+		assertTrue(inventory.search(lamborghini).isEmpty());
+		inventory.close();
+	}
+
+	private static List<Vehicle> vehicles(int count) {
+		Random random = new Random(42);
+		List<Vehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			vehicles.add(new Vehicle(100000 + i, 2005 + random.nextInt(20), MAKES[random.nextInt(MAKES.length)], "Model",
+					"Sedan", COLORS[random.nextInt(COLORS.length)], random.nextInt(200000), 3000 + random.nextInt(60000), false));
+		}
+		return vehicles;
+	}
+
+	private static VehicleSearchCriteria criteriaForVin(int vin) {
+		VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+		criteria.setVin(vin);
+		return criteria;
+	}
+
+	private static List<Integer> vins(List<Vehicle> vehicles) {
+		return vehicles.stream().map(Vehicle::getVin).sorted().toList();
+	}
+
+}
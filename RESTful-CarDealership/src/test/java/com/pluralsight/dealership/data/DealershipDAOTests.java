@@ -0,0 +1,44 @@
+package com.pluralsight.dealership.data;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealershipDAOTests {
+
+	// nothing listens on port 1, so every query fails right away like it does with MySQL down
+	private static final String UNREACHABLE = "jdbc:mysql://localhost:1/car_dealership";
+
+	@Test
+	void aFailedStartupLoadLeavesTheInMemoryStoreOff() {
+		InventoryStore inventoryStore = new InventoryStore("memory");
+		SearchResultCache searchCache = new SearchResultCache(true, 100, 1000);
+		DealershipDAO dao = dao(inventoryStore, searchCache);
+
+		dao.loadInMemoryIndexes();
+
+		// an empty store would answer every search with nothing, SQL at least recovers once MySQL is back
+		assertFalse(inventoryStore.isActive());
+		assertEquals(0, inventoryStore.size());
+		// the startup load reads the databases directly, it never looks in the result cache
+		assertEquals(0, searchCache.stats().misses());
+	}
+
+	private static DealershipDAO dao(InventoryStore inventoryStore, SearchResultCache searchCache) {
+		BasicDataSource pool = pool(UNREACHABLE);
+		DealershipShards shards = new DealershipShards(pool, UNREACHABLE, Map.of(), 1, Map.of(), 5000, 2000, 1000,
+				DealershipDAOTests::pool);
+		return new DealershipDAO(shards, inventoryStore, new InventoryChanges(event -> { }), new VehicleTermIndex(),
+				new ColumnarInventory("sql"), new SimilarVehicleIndex(2, 20000, 5000),
+				searchCache, 500, 500);
+	}
+
+	private static BasicDataSource pool(String url) {
+		BasicDataSource pool = new BasicDataSource();
+		pool.setUrl(url);
+		return pool;
+	}
+}
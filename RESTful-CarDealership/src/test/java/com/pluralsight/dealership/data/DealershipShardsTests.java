@@ -0,0 +1,220 @@
+package com.pluralsight.dealership.data;
+
+import jakarta.servlet.http.Cookie;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DealershipShardsTests {
+
+	@Test
+	void routesEachDealershipToItsDatabase() {
+		BasicDataSource defaultPool = pool("jdbc:mysql://central/car_dealership");
+		DealershipShards shards = new DealershipShards(defaultPool, defaultPool.getUrl(),
+				Map.of(1, "jdbc:mysql://central/car_dealership", 2, "jdbc:mysql://east/car_dealership",
+						3, "jdbc:mysql://east/car_dealership", 4, "jdbc:mysql://west/car_dealership"),
+				1, Map.of(), 5000, 2000, 1000, DealershipShardsTests::pool);
+
+		assertSame(defaultPool, shards.forDealership(1));
+		assertEquals("jdbc:mysql://east/car_dealership", shards.forDealership(2).getUrl());
+		assertSame(shards.forDealership(2), shards.forDealership(3));
+		assertEquals("jdbc:mysql://west/car_dealership", shards.forDealership(4).getUrl());
+		// dealerships that aren't in the map stay on the default database
+		assertSame(defaultPool, shards.forDealership(30));
+
+		assertEquals(3, shards.all().size());
+		assertSame(defaultPool, shards.all().get(0));
+	}
+
+	@Test
+	void fanOutQueriesEveryDatabaseAtOnceAndMergesInShardOrder() {
+		BasicDataSource defaultPool = pool("jdbc:mysql://central/car_dealership");
+		DealershipShards shards = new DealershipShards(defaultPool, defaultPool.getUrl(),
+				Map.of(2, "jdbc:mysql://east/car_dealership", 3, "jdbc:mysql://west/car_dealership"),
+				1, Map.of(), 5000, 2000, 1000, DealershipShardsTests::pool);
+
+		// every query waits until all three have started, so this only finishes if they run in parallel
+		CountDownLatch started = new CountDownLatch(3);
+		List<String> merged = shards.fanOut(dataSource -> {
+			started.countDown();
+			try {
+				assertTrue(started.await(5, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return List.of(dataSource.getUrl(), dataSource.getUrl());
+		});
+
+		assertEquals(List.of("jdbc:mysql://central/car_dealership", "jdbc:mysql://central/car_dealership",
+				"jdbc:mysql://east/car_dealership", "jdbc:mysql://east/car_dealership",
+				"jdbc:mysql://west/car_dealership", "jdbc:mysql://west/car_dealership"), merged);
+
+		assertThrows(IllegalArgumentException.class, () -> shards.fanOut(dataSource -> {
+			throw new IllegalArgumentException(dataSource.getUrl());
+		}));
+	}
+
+	@Test
+	void readsGoToCaughtUpReplicasAndOnlyTheWriterStaysOnThePrimary() {
+		BasicDataSource primary = pool("jdbc:mysql://localhost:3306/car_dealership");
+		BasicDataSource first = pool("jdbc:mysql://localhost:3307/car_dealership");
+		BasicDataSource second = pool("jdbc:mysql://localhost:3308/car_dealership");
+		ReplicatedDatabase database = new ReplicatedDatabase(primary, List.of(first, second), 5000, 2000, 1000);
+		long never = ReplicatedDatabase.NEVER;
+
+		// nothing is read from a replica before its first health check
+		assertSame(primary, database.forReading(10_000, never));
+
+		database.record(0, 0, 10_000);
+		database.record(1, 1000, 10_000);
+		Set<BasicDataSource> used = new HashSet<>();
+		for (int i = 0; i < 4; i++) {
+			used.add(database.forReading(10_000, never));
+		}
+		assertEquals(Set.of(first, second), used);
+
+		// right after its write only the primary has it, then the replica with no lag, then both
+		database.record(0, 0, 20_000);
+		database.record(1, 1000, 20_000);
+		database.wrote(20_000);
+		assertSame(primary, database.forReading(21_000, 20_000));
+		for (int i = 0; i < 4; i++) {
+			assertSame(first, database.forReading(22_500, 20_000));
+		}
+		used.clear();
+		for (int i = 0; i < 4; i++) {
+			used.add(database.forReading(23_000, 20_000));
+		}
+		assertEquals(Set.of(first, second), used);
+
+		// someone else's write doesn't keep anyone else off the replicas, but their reads aren't current
+		database.record(0, 0, 30_000);
+		database.record(1, 1000, 30_000);
+		database.wrote(30_000);
+		assertNotSame(primary, database.forReading(30_500, never));
+		assertTrue(database.isCurrent(primary, 30_500));
+		assertFalse(database.isCurrent(first, 30_500));
+		assertTrue(database.isCurrent(first, 32_000));
+		assertFalse(database.isCurrent(second, 32_000));
+		assertTrue(database.isCurrent(second, 33_000));
+
+		// a replica that fails its check or falls too far behind is skipped
+		database.record(0, -1, 40_000);
+		database.record(1, 6000, 40_000);
+		assertSame(primary, database.forReading(42_000, never));
+		database.record(1, 4000, 41_000);
+		assertSame(second, database.forReading(42_000, never));
+
+		// and so is one whose checks stopped answering, once its last one is older than the max lag plus a check
+		assertSame(second, database.forReading(47_000, never));
+		assertSame(primary, database.forReading(47_001, never));
+		assertFalse(database.isCurrent(second, 47_001));
+		assertFalse(database.status(47_001).get(1).healthy());
+	}
+
+	@Test
+	void aClientThatWroteCarriesItsWriteTimeToItsNextRequests() {
+		BasicDataSource primary = pool("jdbc:mysql://localhost:3306/car_dealership");
+		DealershipShards shards = new DealershipShards(primary, primary.getUrl(), Map.of(), 1,
+				Map.of(primary.getUrl(), List.of("jdbc:mysql://localhost:3307/car_dealership")), 5000, 2000, 1000,
+				DealershipShardsTests::pool);
+		shards.record(1, 0, 0, System.currentTimeMillis());
+		BasicDataSource replica = shards.allForReading().get(0);
+		assertNotSame(primary, replica);
+
+		// the write's own request reads it back from the primary, and its response carries the cookie
+		MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+		inRequest(new MockHttpServletRequest(), writeResponse, () -> {
+			shards.onInventoryChange(new InventoryChangeEvent(InventoryChangeEvent.Type.REMOVED, 1, null, 1,
+					Instant.now()));
+			shards.onInventoryChange(new InventoryChangeEvent(InventoryChangeEvent.Type.REMOVED, 2, null, 2,
+					Instant.now()));
+			assertSame(primary, shards.forReading(1));
+		});
+		// however many writes the request made, there is one cookie
+		assertEquals(1, writeResponse.getHeaders(HttpHeaders.SET_COOKIE).size());
+		Cookie cookie = writeResponse.getCookie(DealershipShards.LAST_WRITE_COOKIE);
+		assertNotNull(cookie);
+
+		// the same client's next request stays on the primary, another client's goes to the replica
+		MockHttpServletRequest sameClient = new MockHttpServletRequest();
+		sameClient.setCookies(cookie);
+		inRequest(sameClient, new MockHttpServletResponse(), () -> assertSame(primary, shards.forReading(1)));
+		inRequest(new MockHttpServletRequest(), new MockHttpServletResponse(),
+				() -> assertSame(replica, shards.forReading(1)));
+		// and nothing read from the replica right after the write is current
+		assertFalse(shards.isCurrent(List.of(replica)));
+		assertTrue(shards.isCurrent(List.of(primary)));
+
+		// outside a request the writing thread is the client
+		shards.onInventoryChange(new InventoryChangeEvent(InventoryChangeEvent.Type.REMOVED, 3, null, 3, Instant.now()));
+		assertSame(primary, shards.forReading(1));
+	}
+
+	@Test
+	void readsLabelledWithTheInventoryVersionGoToThePrimaries() {
+		BasicDataSource primary = pool("jdbc:mysql://localhost:3306/car_dealership");
+		DealershipShards shards = new DealershipShards(primary, primary.getUrl(), Map.of(), 1,
+				Map.of(primary.getUrl(), List.of("jdbc:mysql://localhost:3307/car_dealership")), 5000, 2000, 1000,
+				DealershipShardsTests::pool);
+		shards.record(1, 0, 0, System.currentTimeMillis());
+		BasicDataSource replica = shards.forReading(1);
+		assertNotSame(primary, replica);
+
+		assertSame(primary, shards.onPrimaries(() -> shards.forReading(1)));
+		assertEquals(List.of(primary), shards.onPrimaries(() -> shards.onPrimaries(shards::allForReading)));
+		// and only for that read
+		assertSame(replica, shards.forReading(1));
+	}
+
+	@Test
+	void poolStatsListEveryPrimaryAndReplica() {
+		InstrumentedDataSource defaultPool = instrumented("jdbc:mysql://central/car_dealership");
+		DealershipShards shards = new DealershipShards(defaultPool, defaultPool.getUrl(),
+				Map.of(2, "jdbc:mysql://east/car_dealership"), 1,
+				Map.of("jdbc:mysql://east/car_dealership", List.of("jdbc:mysql://east-replica/car_dealership")),
+				5000, 2000, 1000, DealershipShardsTests::instrumented);
+
+		List<PoolStats> stats = shards.poolStats();
+
+		assertEquals(List.of("jdbc:mysql://central/car_dealership", "jdbc:mysql://east/car_dealership",
+				"jdbc:mysql://east-replica/car_dealership"), stats.stream().map(PoolStats::url).toList());
+		assertEquals(List.of("primary", "primary", "replica"), stats.stream().map(PoolStats::role).toList());
+	}
+
+	private static void inRequest(MockHttpServletRequest request, MockHttpServletResponse response, Runnable work) {
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+		try {
+			work.run();
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+	}
+
+	// pools are only created here, nothing connects until a connection is borrowed
+	private static InstrumentedDataSource instrumented(String url) {
+		InstrumentedDataSource pool = new InstrumentedDataSource();
+		pool.setUrl(url);
+		return pool;
+	}
+
+	private static BasicDataSource pool(String url) {
+		BasicDataSource pool = new BasicDataSource();
+		pool.setUrl(url);
+		return pool;
+	}
+}
@@ -0,0 +1,59 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryChangeLogTests {
+
+	private static final Vehicle CAMRY = new Vehicle(111111111, 2019, "Toyota", "Camry", "Sedan", "Red", 42000, 18500, false);
+	private static final Vehicle F150 = new Vehicle(222222222, 2021, "Ford", "F-150", "Truck", "Blue", 15000, 32000, false);
+
+	@Test
+	void keepsOnlyTheLatestChangePerVin() {
+		InventoryChangeLog log = new InventoryChangeLog(Duration.ofHours(1), 100);
+		log.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, CAMRY, 1));
+		log.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, F150, 2));
+		log.onInventoryChange(change(InventoryChangeEvent.Type.SOLD, CAMRY, 3));
+
+		assertEquals(2, log.size());
+		assertEquals(List.of(2L, 3L), log.since(0).stream().map(InventoryChangeEvent::version).toList());
+		assertEquals(List.of(InventoryChangeEvent.Type.SOLD),
+				log.since(2).stream().map(InventoryChangeEvent::type).toList());
+		assertTrue(log.since(3).isEmpty());
+	}
+
+	@Test
+	void versionsOlderThanTheCompactedHistoryGetNothing() {
+		InventoryChangeLog log = new InventoryChangeLog(Duration.ofHours(1), 1);
+		log.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, CAMRY, 1));
+		log.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, F150, 2));
+		log.compact();
+
+		assertNull(log.since(0));
+		assertEquals(1, log.since(1).size());
+		assertNull(log.since(Instant.EPOCH));
+	}
+
+	@Test
+	void timesFromBeforeARestartGetNothing() {
+		Instant beforeRestart = Instant.now().minusSeconds(60);
+		InventoryChangeLog log = new InventoryChangeLog(Duration.ofHours(1), 100);
+
+		// the log is empty after a restart, that is not the same as nothing having changed since then
+		assertNull(log.since(beforeRestart));
+		log.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, CAMRY, 1));
+		assertNull(log.since(beforeRestart));
+		assertNull(log.since(Instant.EPOCH));
+	}
+
+	private static InventoryChangeEvent change(InventoryChangeEvent.Type type, Vehicle vehicle, long version) {
+		return new InventoryChangeEvent(type, vehicle.getVin(), vehicle, version, Instant.now());
+	}
+
+}
@@ -0,0 +1,251 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleCursor;
+import com.pluralsight.dealership.models.VehicleFacets;
+import com.pluralsight.dealership.models.VehicleFilter;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import com.pluralsight.dealership.models.VehicleSortKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryStoreTests {
+
+	private InventoryStore store;
+
+	@BeforeEach
+	void setUp() {
+		store = new InventoryStore("memory");
+		store.load(List.of(
+				new Vehicle(111111111, 2019, "Toyota", "Camry", "Sedan", "Red", 42000, 18500, false),
+				new Vehicle(222222222, 2021, "Ford", "F-150", "Truck", "Blue", 15000, 32000, false),
+				new Vehicle(333333333, 2016, "Toyota", "RAV4", "SUV", "Red", 88000, 12900, false)));
+	}
+
+	@Test
+	void equalitySearchesIgnoreCase() {
+		assertEquals(2, store.search(criteria(c -> c.setMake("toyota"))).size());
+		assertEquals(2, store.search(criteria(c -> c.setColor("RED"))).size());
+		assertEquals(1, store.search(criteria(c -> {
+			c.setMake("Toyota");
+			c.setModel("rav4");
+		})).size());
+	}
+
+	@Test
+	void paddedTextFiltersMatchLikeTheSqlSearch() {
+		assertEquals(2, store.search(criteria(c -> c.setMake(" Toyota "))).size());
+		assertEquals(1, store.search(criteria(c -> {
+			c.setMake("toyota ");
+			c.setType(" suv");
+			c.setMaxPrice(20000.0);
+		})).size());
+		assertEquals("Honda", criteria(c -> c.setMake("Honda ")).getMake());
+	}
+
+	@Test
+	void rangeSearchesAreInclusiveAndSorted() {
+		List<Vehicle> results = store.search(criteria(c -> {
+			c.setMinPrice(12900.0);
+			c.setMaxPrice(18500.0);
+		}));
+
+		assertEquals(List.of(333333333, 111111111), results.stream().map(Vehicle::getVin).toList());
+		assertEquals(2, store.search(criteria(c -> {
+			c.setMinYear(2019);
+			c.setMaxYear(2024);
+		})).size());
+		assertTrue(store.search(criteria(c -> c.setMaxMileage(10000.0))).isEmpty());
+	}
+
+	@Test
+	void combinedFiltersAreAllApplied() {
+		List<Vehicle> results = store.search(criteria(c -> {
+			c.setColor("red");
+			c.setType("suv");
+			c.setMaxPrice(30000.0);
+			c.setMaxMileage(90000.0);
+		}));
+
+		assertEquals(List.of(333333333), results.stream().map(Vehicle::getVin).toList());
+	}
+
+	@Test
+	void writesKeepIndexesConsistent() {
+		store.put(new Vehicle(444444444, 2023, "Honda", "Civic", "Sedan", "Red", 3000, 24000, false));
+		store.remove(111111111);
+
+		assertEquals(List.of(444444444, 333333333),
+				store.search(criteria(c -> c.setColor("red"))).stream().map(Vehicle::getVin).sorted((a, b) -> b - a).toList());
+		assertTrue(store.search(criteria(c -> c.setMinPrice(18000.0))).stream().noneMatch(v -> v.getVin() == 111111111));
+		assertNull(store.getByVin(111111111));
+		assertEquals(3, store.size());
+	}
+
+	@Test
+	void pagesContinueAfterTheCursor() {
+		List<Vehicle> firstPage = store.searchPage(new VehicleSearchCriteria(), VehicleSortKey.PRICE, true, null, 1);
+		assertEquals(List.of(222222222, 111111111), firstPage.stream().map(Vehicle::getVin).toList());
+
+		VehicleCursor cursor = VehicleCursor.decode(
+				VehicleCursor.after(firstPage.get(0), VehicleSortKey.PRICE, true).encode(), VehicleSortKey.PRICE, true);
+		List<Vehicle> secondPage = store.searchPage(new VehicleSearchCriteria(), VehicleSortKey.PRICE, true, cursor, 2);
+		assertEquals(List.of(111111111, 333333333), secondPage.stream().map(Vehicle::getVin).toList());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> VehicleCursor.decode(cursor.encode(), VehicleSortKey.YEAR, true));
+	}
+
+	@Test
+	void facetsFollowWrites() {
+		VehicleFacets red = store.facets(criteria(c -> c.setColor("red")));
+		assertEquals(2, red.count());
+		assertEquals(Map.of("Toyota", 2), red.makes());
+		assertEquals(12900, red.price().min());
+		assertEquals(18500, red.price().max());
+
+		// the cheapest red car leaves, so the kept min has to be found again
+		store.remove(333333333);
+		store.put(new Vehicle(444444444, 2023, "Honda", "Civic", "Sedan", "Red", 3000, 24000, false));
+		red = store.facets(criteria(c -> c.setColor("RED")));
+		assertEquals(Map.of("Honda", 1, "Toyota", 1), red.makes());
+		assertEquals(18500, red.price().min());
+		assertEquals(21250, red.price().average());
+
+		// a combination of filters is counted from the matching vehicles instead
+		VehicleFacets cheapRed = store.facets(criteria(c -> {
+			c.setColor("red");
+			c.setMaxPrice(20000.0);
+		}));
+		assertEquals(Map.of(2019, 1), cheapRed.years());
+		assertEquals(3, store.facets(new VehicleSearchCriteria()).count());
+	}
+
+	@Test
+	void aGroupRescannedThroughAnotherSpellingKeepsItsRanges() {
+		store.put(new Vehicle(444444444, 2020, "Honda", "Civic", "Sedan", "Black", 30000, 17000, false));
+		store.put(new Vehicle(555555555, 2022, "Honda", "Accord", "Sedan", "White", 12000, 26000, false));
+		store.put(new Vehicle(666666666, 2018, "Honda", "CR-V", "SUV", "Gray", 60000, 21000, false));
+		assertEquals(3, store.facets(criteria(c -> c.setMake(" HONDA "))).count());
+
+		// the priciest Honda leaves, the next read of the group finds its new max whatever the spelling
+		store.remove(555555555);
+		VehicleFacets hondas = store.facets(criteria(c -> c.setMake("Honda ")));
+		assertEquals(2, hondas.count());
+		assertEquals(17000, hondas.price().min());
+		assertEquals(21000, hondas.price().max());
+		assertEquals(60000, hondas.mileage().max());
+		assertEquals(hondas, store.facets(criteria(c -> c.setMake("honda"))));
+	}
+
+	@Test
+	void callersOnlyEverChangeTheirOwnCopies() {
+		Vehicle camry = store.search(criteria(c -> c.setModel("Camry"))).get(0);
+		camry.setPrice(1);
+		camry.setMake("Honda");
+		store.getByVin(222222222).setPrice(1);
+		store.getAllVehicles().forEach(vehicle -> vehicle.setColor("Green"));
+
+		Vehicle civic = new Vehicle(444444444, 2020, "Honda", "Civic", "Sedan", "Black", 30000, 17000, false);
+		store.put(civic);
+		civic.setMake("Toyota");
+
+		assertEquals(18500, store.getByVin(111111111).getPrice());
+		assertEquals(2, store.search(criteria(c -> c.setMake("Toyota"))).size());
+		assertEquals(1, store.search(criteria(c -> c.setMake("Honda"))).size());
+		assertEquals(2, store.search(criteria(c -> c.setColor("Red"))).size());
+		assertEquals(List.of(333333333, 444444444, 111111111, 222222222),
+				vinsInOrder(store.top(criteria(c -> { }), VehicleSortKey.PRICE, false, null, 10)));
+	}
+
+	@Test
+	void bitmapFiltersCombineAnyOfAndExclusions() {
+		store.put(new Vehicle(444444444, 2021, "Ford", "Ranger", "Truck", "Red", 9000, 27000, false));
+		store.put(new Vehicle(555555555, 2015, "Ford", "F-150", "Truck", "Black", 120000, 14000, false));
+
+		VehicleFilter fordTrucks = new VehicleFilter();
+		fordTrucks.setMake(List.of("ford"));
+		fordTrucks.setColor(List.of("Red", "blue"));
+		fordTrucks.setType(List.of("Truck"));
+		assertEquals(List.of(222222222, 444444444), vins(store.filter(fordTrucks)));
+
+		VehicleFilter notRed = new VehicleFilter();
+		notRed.setMake(List.of("Ford"));
+		notRed.setNotColor(List.of("RED"));
+		notRed.setNotYear(List.of(2015));
+		assertEquals(List.of(222222222), vins(store.filter(notRed)));
+		// the exclusions work on a copy, the make index still holds every Ford
+		assertEquals(3, store.search(criteria(c -> c.setMake("Ford"))).size());
+
+		VehicleFilter onlyExclusions = new VehicleFilter();
+		onlyExclusions.setNotMake(List.of("Toyota", "Tesla"));
+		onlyExclusions.setYear(List.of(2015, 2016, 2021));
+		onlyExclusions.setMaxPrice(30000.0);
+		assertEquals(List.of(444444444, 555555555), vins(store.filter(onlyExclusions)));
+
+		// a sold vehicle leaves every bitmap, and each result agrees with the filter itself
+		store.remove(444444444);
+		assertEquals(List.of(222222222), vins(store.filter(fordTrucks)));
+		for (VehicleFilter filter : List.of(fordTrucks, notRed, onlyExclusions, new VehicleFilter())) {
+			assertEquals(store.getAllVehicles().stream().filter(filter::matches).count(), store.filter(filter).size());
+		}
+	}
+
+	@Test
+	void topMatchesAFullSortWithTies() {
+		String[] makes = {"Toyota", "Ford", "Honda", "Tesla"};
+		String[] types = {"SUV", "Truck", "Sedan"};
+		List<Vehicle> lot = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			// few distinct prices and years, so the cut often lands in the middle of a tie
+			lot.add(new Vehicle(100000 + i, 2010 + i % 12, i % 97 == 0 ? "Tesla" : makes[i % 3], "Model", types[i % 3], "Red",
+					(i * 7919) % 150000, 10000 + (i * 31) % 20 * 1000, false));
+		}
+		store.load(lot);
+
+		List<VehicleSearchCriteria> filters = List.of(new VehicleSearchCriteria(),
+				criteria(c -> c.setType("SUV")),
+				criteria(c -> c.setMake("Tesla")),
+				criteria(c -> {
+					c.setMake("Ford");
+					c.setMaxMileage(50000.0);
+				}));
+		for (VehicleSearchCriteria filter : filters) {
+			for (VehicleSortKey sortKey : VehicleSortKey.values()) {
+				for (boolean descending : new boolean[]{false, true}) {
+					Comparator<Vehicle> order = sortKey.comparator(descending);
+					List<Vehicle> sorted = lot.stream().filter(filter::matches).sorted(order).toList();
+					assertEquals(vinsInOrder(sorted.stream().limit(10).toList()),
+							vinsInOrder(store.top(filter, sortKey, descending, null, 10)));
+
+					VehicleCursor cursor = VehicleCursor.after(sorted.get(2), sortKey, descending);
+					assertEquals(vinsInOrder(sorted.stream().skip(3).limit(5).toList()),
+							vinsInOrder(store.top(filter, sortKey, descending, cursor, 5)));
+				}
+			}
+		}
+	}
+
+	private static List<Integer> vins(List<Vehicle> vehicles) {
+		return vehicles.stream().map(Vehicle::getVin).sorted().toList();
+	}
+
+	private static List<Integer> vinsInOrder(List<Vehicle> vehicles) {
+		return vehicles.stream().map(Vehicle::getVin).toList();
+	}
+
+	private static VehicleSearchCriteria criteria(Consumer<VehicleSearchCriteria> filters) {
+		VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+		filters.accept(criteria);
+		return criteria;
+	}
+
+}
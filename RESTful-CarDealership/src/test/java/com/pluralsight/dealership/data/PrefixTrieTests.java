@@ -0,0 +1,52 @@
+package com.pluralsight.dealership.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTests {
+
+	@Test
+	void prefixesFindEveryKeyBelowThem() {
+		PrefixTrie<String> trie = trie("camry", "camaro", "civic", "cx-5", "corolla");
+
+		assertEquals(List.of("camaro", "camry"), withPrefix(trie, "cam"));
+		assertEquals(List.of("camaro"), withPrefix(trie, "camar"));
+		assertEquals(5, withPrefix(trie, "c").size());
+		assertTrue(withPrefix(trie, "camx").isEmpty());
+		assertTrue(withPrefix(trie, "d").isEmpty());
+	}
+
+	@Test
+	void removedKeysAreGoneAndTheRestStillMatch() {
+		PrefixTrie<String> trie = trie("camry", "camaro", "cam");
+		trie.remove("cam");
+		trie.remove("camaro");
+		trie.remove("civic");
+
+		assertEquals(1, trie.size());
+		assertEquals(List.of("camry"), withPrefix(trie, "ca"));
+		assertEquals(List.of("camry"), withPrefix(trie, "camr"));
+
+		trie.put("camaro", "camaro");
+		assertEquals(List.of("camaro", "camry"), withPrefix(trie, "cam"));
+	}
+
+	private static PrefixTrie<String> trie(String... keys) {
+		PrefixTrie<String> trie = new PrefixTrie<>();
+		for (String key : keys) {
+			trie.put(key, key);
+		}
+		return trie;
+	}
+
+	private static List<String> withPrefix(PrefixTrie<String> trie, String prefix) {
+		List<String> values = new ArrayList<>();
+		trie.forEachWithPrefix(prefix, values::add);
+		return values;
+	}
+
+}
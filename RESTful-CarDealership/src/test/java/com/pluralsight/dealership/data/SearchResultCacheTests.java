@@ -0,0 +1,127 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Vehicle;
+import com.pluralsight.dealership.models.VehicleSearchCriteria;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTests {
+
+	@Test
+	void changesOnlyDropTheSearchesTheyAffect() {
+		SearchResultCache cache = new SearchResultCache(true, 100, 1000);
+		Vehicle camry = vehicle(1, "Toyota", "Sedan", 18000);
+		Vehicle rav4 = vehicle(2, "Toyota", "SUV", 26000);
+		Vehicle explorer = vehicle(3, "Ford", "SUV", 31000);
+
+		VehicleSearchCriteria toyotas = make("Toyota");
+		VehicleSearchCriteria suvs = new VehicleSearchCriteria();
+		suvs.setType("SUV");
+		VehicleSearchCriteria cheap = new VehicleSearchCriteria();
+		cheap.setMinPrice(10000.0);
+		cheap.setMaxPrice(20000.0);
+		cache.put(toyotas, List.of(camry, rav4), 0);
+		cache.put(suvs, List.of(rav4, explorer), 0);
+		cache.put(cheap, List.of(camry), 0);
+
+		// the key ignores case and surrounding spaces like the in-memory store does
+		assertEquals(List.of(1, 2), vins(cache.get(make("TOYOTA"))));
+		assertEquals(List.of(1, 2), vins(cache.get(make(" toyota "))));
+
+		// a new Ford truck matches none of them
+		cache.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, 4, vehicle(4, "Ford", "Truck", 45000), 1));
+		assertNotNull(cache.get(toyotas));
+		assertNotNull(cache.get(suvs));
+		assertNotNull(cache.get(cheap));
+
+		// a new cheap Honda SUV changes the SUVs and the cheap cars
+		cache.onInventoryChange(change(InventoryChangeEvent.Type.ADDED, 5, vehicle(5, "Honda", "SUV", 15000), 2));
+		assertNotNull(cache.get(toyotas));
+		assertNull(cache.get(suvs));
+		assertNull(cache.get(cheap));
+
+		// taking the Camry off the lot changes the Toyotas, the event only has to name the vin
+		cache.onInventoryChange(change(InventoryChangeEvent.Type.REMOVED, 1, null, 3));
+		assertNull(cache.get(toyotas));
+
+		SearchCacheStats stats = cache.stats();
+		assertEquals(3, stats.invalidations());
+		assertEquals(0, stats.entries());
+		assertEquals(0, stats.weight());
+		assertEquals(6, stats.hits());
+		assertEquals(3, stats.misses());
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedByCountAndWeightAndSkipsStaleResults() {
+		SearchResultCache cache = new SearchResultCache(true, 2, 5);
+		Vehicle camry = vehicle(1, "Toyota", "Sedan", 18000);
+		Vehicle civic = vehicle(2, "Honda", "Sedan", 17000);
+		Vehicle f150 = vehicle(3, "Ford", "Truck", 40000);
+
+		cache.put(make("Toyota"), List.of(camry), 0);
+		cache.put(make("Honda"), List.of(civic), 0);
+		assertNotNull(cache.get(make("Toyota")));
+		// three entries is one too many, Honda was used longest ago
+		cache.put(make("Ford"), List.of(f150), 0);
+		assertNull(cache.get(make("Honda")));
+		assertNotNull(cache.get(make("Toyota")));
+
+		// four vehicles plus the entry itself is all the weight there is, so both others go
+		VehicleSearchCriteria everything = new VehicleSearchCriteria();
+		cache.put(everything, List.of(camry, civic, f150, vehicle(4, "Kia", "SUV", 22000)), 0);
+		assertNull(cache.get(make("Toyota")));
+		assertNull(cache.get(make("Ford")));
+		assertEquals(4, cache.get(everything).size());
+		assertEquals(3, cache.stats().evictions());
+
+		// a search that started before a change it may have missed isn't kept
+		cache.onInventoryChange(change(InventoryChangeEvent.Type.REMOVED, 99, null, 7));
+		cache.put(make("Honda"), List.of(civic), 6);
+		assertNull(cache.get(make("Honda")));
+		cache.put(make("Honda"), List.of(civic), 7);
+		assertNotNull(cache.get(make("Honda")));
+	}
+
+	@Test
+	void callersNeverShareVehicles() {
+		SearchResultCache cache = new SearchResultCache(true, 100, 1000);
+		Vehicle camry = vehicle(1, "Toyota", "Sedan", 18000);
+		camry.setDealershipId(2);
+		cache.put(make("Toyota"), List.of(camry), 0);
+
+		// the caller that ran the query goes on to sign a contract on its vehicle
+		camry.setHasContract(true);
+		Vehicle first = cache.get(make("Toyota")).get(0);
+		assertFalse(first.isHasContract());
+		assertEquals(2, first.getDealershipId());
+
+		// and a caller that got it from the cache does the same
+		first.setHasContract(true);
+		Vehicle second = cache.get(make("Toyota")).get(0);
+		assertNotSame(first, second);
+		assertFalse(second.isHasContract());
+	}
+
+	private static List<Integer> vins(List<Vehicle> vehicles) {
+		return vehicles.stream().map(Vehicle::getVin).toList();
+	}
+
+	private static VehicleSearchCriteria make(String make) {
+		VehicleSearchCriteria criteria = new VehicleSearchCriteria();
+		criteria.setMake(make);
+		return criteria;
+	}
+
+	private static InventoryChangeEvent change(InventoryChangeEvent.Type type, int vin, Vehicle vehicle, long version) {
+		return new InventoryChangeEvent(type, vin, vehicle, version, Instant.now());
+	}
+
+	private static Vehicle vehicle(int vin, String make, String type, double price) {
+		return new Vehicle(vin, 2020, make, "Model", type, "Blue", 30000, price, false);
+	}
+}
@@ -0,0 +1,91 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.SimilarVehicle;
+import com.pluralsight.dealership.models.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarVehicleIndexTests {
+
+	private static final String[] MAKES = {"Toyota", "Ford", "Honda", "Tesla"};
+	private static final String[] TYPES = {"SUV", "Truck", "Sedan"};
+
+	@Test
+	void closestVehiclesComeFirst() {
+		SimilarVehicleIndex index = new SimilarVehicleIndex(2, 20000, 5000);
+		index.load(List.of(
+				new Vehicle(111111111, 2019, "Toyota", "Camry", "Sedan", "Red", 42000, 18500, false),
+				new Vehicle(222222222, 2020, "Honda", "Accord", "Sedan", "Blue", 38000, 19500, false),
+				new Vehicle(333333333, 2016, "Toyota", "RAV4", "SUV", "Red", 88000, 12900, false),
+				new Vehicle(444444444, 2023, "Ford", "F-150", "Truck", "Black", 5000, 52000, false)));
+
+		List<SimilarVehicle> similar = index.similar(111111111, null, null, 2);
+		assertEquals(List.of(222222222, 333333333), similar.stream().map(s -> s.vehicle().getVin()).toList());
+		assertEquals(List.of(333333333), index.similar(111111111, "toyota", null, 5).stream().map(s -> s.vehicle().getVin()).toList());
+		assertTrue(index.similar(111111111, "Toyota", "Truck", 5).isEmpty());
+		assertNull(index.similar(999999999, null, null, 5));
+	}
+
+	@Test
+	void lookupsMatchABruteForceScanAsTheInventoryChanges() {
+		Random random = new Random(7);
+		Map<Integer, Vehicle> lot = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			Vehicle vehicle = randomVehicle(random, 100000 + i);
+			lot.put(vehicle.getVin(), vehicle);
+		}
+		SimilarVehicleIndex index = new SimilarVehicleIndex(2, 20000, 5000);
+		index.load(lot.values());
+
+		// enough adds and removals to go through the pending list, the removed marks and several rebuilds
+		for (int i = 0; i < 1500; i++) {
+			Vehicle vehicle = randomVehicle(random, 100000 + random.nextInt(3000));
+			if (random.nextBoolean()) {
+				lot.put(vehicle.getVin(), vehicle);
+				index.add(vehicle);
+			} else {
+				lot.remove(vehicle.getVin());
+				index.remove(vehicle.getVin());
+			}
+		}
+
+		List<Vehicle> targets = new ArrayList<>(lot.values()).subList(0, 50);
+		for (Vehicle target : targets) {
+			for (String[] constraint : new String[][]{{null, null}, {"Tesla", null}, {null, "SUV"}, {"Ford", "Truck"}}) {
+				List<Integer> expected = lot.values().stream()
+						.filter(v -> v.getVin() != target.getVin())
+						.filter(v -> constraint[0] == null || constraint[0].equals(v.getMake()))
+						.filter(v -> constraint[1] == null || constraint[1].equals(v.getType()))
+						.sorted(Comparator.comparingDouble((Vehicle v) -> distance(target, v)).thenComparingInt(Vehicle::getVin))
+						.limit(5).map(Vehicle::getVin).toList();
+				List<SimilarVehicle> found = index.similar(target.getVin(), constraint[0], constraint[1], 5);
+
+				assertEquals(expected.size(), found.size());
+				for (int i = 0; i < found.size(); i++) {
+					// equally distant vehicles may come back in either order, the distances have to agree
+					assertEquals(distance(target, lot.get(expected.get(i))), found.get(i).distance(), 1e-9);
+				}
+			}
+		}
+	}
+
+	private static Vehicle randomVehicle(Random random, int vin) {
+		return new Vehicle(vin, 2005 + random.nextInt(20), MAKES[random.nextInt(MAKES.length)], "Model",
+				TYPES[random.nextInt(TYPES.length)], "Red", random.nextInt(200000), 3000 + random.nextInt(60000), false);
+	}
+
+	private static double distance(Vehicle a, Vehicle b) {
+		double years = (a.getYear() - b.getYear()) / 2.0;
+		double miles = (a.getMileage() - b.getMileage()) / 20000;
+		double price = (a.getPrice() - b.getPrice()) / 5000;
+		return Math.sqrt(years * years + miles * miles + price * price);
+	}
+}
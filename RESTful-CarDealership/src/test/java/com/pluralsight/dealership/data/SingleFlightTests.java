@@ -0,0 +1,82 @@
+package com.pluralsight.dealership.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+	@Test
+	void identicalConcurrentCallsShareOneLoad() throws Exception {
+		SingleFlight<String, List<String>> flights = new SingleFlight<>();
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<List<String>> results = new CopyOnWriteArrayList<>();
+
+		Thread first = Thread.ofVirtual().start(() -> results.add(flights.load("make=toyota", () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return List.of("Camry", "RAV4");
+		})));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		// these all arrive while the first load is running, each one parks until it is done
+		List<Thread> followers = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			followers.add(Thread.ofVirtual().start(() -> results.add(flights.load("make=toyota", () -> {
+				loads.incrementAndGet();
+				return List.of();
+			}))));
+		}
+		for (Thread follower : followers) {
+			while (follower.getState() != Thread.State.WAITING) {
+				Thread.sleep(1);
+			}
+		}
+		// a different key isn't held up by it
+		assertEquals(List.of("F-150"), flights.load("make=ford", () -> List.of("F-150")));
+
+		release.countDown();
+		first.join();
+		for (Thread follower : followers) {
+			follower.join();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(51, results.size());
+		for (List<String> result : results) {
+			assertSame(results.get(0), result);
+		}
+		assertEquals(List.of("Camry", "RAV4"), results.get(0));
+		assertEquals(0, flights.inFlight());
+
+		// once it is done, the next call loads again instead of getting the old result
+		assertEquals(List.of("Camry"), flights.load("make=toyota", () -> List.of("Camry")));
+	}
+
+	@Test
+	void aFailedLoadIsNotRemembered() {
+		SingleFlight<String, String> flights = new SingleFlight<>();
+		assertThrows(IllegalStateException.class, () -> flights.load("make=kia", () -> {
+			throw new IllegalStateException("database down");
+		}));
+		assertEquals(0, flights.inFlight());
+		assertEquals("Soul", flights.load("make=kia", () -> "Soul"));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
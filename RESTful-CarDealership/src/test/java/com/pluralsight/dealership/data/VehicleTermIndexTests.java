@@ -0,0 +1,64 @@
+package com.pluralsight.dealership.data;
+
+import com.pluralsight.dealership.models.Suggestion;
+import com.pluralsight.dealership.models.TermMatch;
+import com.pluralsight.dealership.models.Vehicle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleTermIndexTests {
+
+	private VehicleTermIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new VehicleTermIndex();
+		index.load(List.of(
+				new Vehicle(111111111, 2019, "Toyota", "Camry", "Sedan", "Red", 42000, 18500, false),
+				new Vehicle(222222222, 2021, "Honda", "Civic", "Sedan", "Blue", 15000, 32000, false),
+				new Vehicle(333333333, 2016, "Toyota", "RAV4", "SUV", "Red", 88000, 12900, false)));
+	}
+
+	@Test
+	void misspellingsFindTheClosestValues() {
+		List<TermMatch> matches = index.match("Toyta", null);
+		assertEquals(new TermMatch("make", "Toyota", 1, 2), matches.get(0));
+
+		assertEquals("Civic", index.match("civic", VehicleTermIndex.Field.MODEL).get(0).value());
+		assertEquals("Civic", index.match("sivic", null).get(0).value());
+		assertTrue(index.match("Lamborghini", null).isEmpty());
+		assertTrue(index.match("civic", VehicleTermIndex.Field.MAKE).isEmpty());
+	}
+
+	@Test
+	void valuesLeaveWithTheirLastVehicle() {
+		index.remove(222222222);
+		assertTrue(index.match("Honda", null).isEmpty());
+
+		index.remove(111111111);
+		assertEquals(1, index.match("Toyota", null).get(0).vehicles());
+	}
+
+	@Test
+	void suggestionsStartWithThePrefixAndMostVehiclesComeFirst() {
+		assertEquals(List.of(new Suggestion("make", "Toyota", 2)), index.suggest("to", null, 10));
+		assertEquals(List.of("Sedan", "SUV"),
+				index.suggest("s", VehicleTermIndex.Field.TYPE, 10).stream().map(Suggestion::value).toList());
+		assertEquals(1, index.suggest("s", null, 1).size());
+
+		index.remove(222222222);
+		assertTrue(index.suggest("ci", null, 10).isEmpty());
+	}
+
+	@Test
+	void editDistanceStopsPastTheLimit() {
+		assertEquals(0, VehicleTermIndex.editDistance("camry", "camry", 2));
+		assertEquals(2, VehicleTermIndex.editDistance("camry", "carmy", 2));
+		assertEquals(3, VehicleTermIndex.editDistance("camry", "silverado", 2));
+	}
+
+}
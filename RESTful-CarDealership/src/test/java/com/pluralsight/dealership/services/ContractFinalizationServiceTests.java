@@ -0,0 +1,168 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.data.DealershipShards;
+import com.pluralsight.dealership.data.InventoryChangeEvent;
+import com.pluralsight.dealership.data.InventoryChanges;
+import com.pluralsight.dealership.models.Vehicle;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContractFinalizationServiceTests {
+
+	private static final String INSERT_CONTRACT = "insert into car_dealership.sales_contracts (VIN) values (?)";
+
+	private final InventoryRow row = new InventoryRow();
+	private final List<InventoryChangeEvent> events = new CopyOnWriteArrayList<>();
+	private final ContractFinalizationService service;
+
+	ContractFinalizationServiceTests() {
+		DealershipShards shards = mock(DealershipShards.class);
+		when(shards.forDealership(anyInt())).thenReturn(new BasicDataSource() {
+			@Override
+			public Connection getConnection() {
+				return row.connect();
+			}
+		});
+		service = new ContractFinalizationService(shards,
+				new InventoryChanges(event -> events.add((InventoryChangeEvent) event)));
+	}
+
+	@Test
+	void twoSalesOfTheSameVehicleAtOnceSellItOnce() throws Exception {
+		Vehicle vehicle = new Vehicle(111111111, 2019, "Toyota", "Camry", "Sedan", "Red", 42000, 18500, false);
+		// whoever claims the row first holds its lock until the other sale is waiting for it, then commits
+		ContractFinalizationService.ContractInsert insert = c -> {
+			waitUntil(row.lock::hasQueuedThreads);
+			return execute(c, INSERT_CONTRACT);
+		};
+
+		List<Boolean> results;
+		try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+			Future<Boolean> first = executor.submit(() -> service.finalizeContract(vehicle, insert));
+			Future<Boolean> second = executor.submit(() -> service.finalizeContract(vehicle, insert));
+			results = List.of(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+		}
+
+		assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+		assertTrue(row.sold);
+		assertEquals(1, row.contracts.get());
+		assertEquals(1, events.size());
+		assertEquals(InventoryChangeEvent.Type.SOLD, events.get(0).type());
+		// nobody is left holding the row
+		assertEquals(1, row.lock.availablePermits());
+	}
+
+	@Test
+	void aFailedContractInsertLeavesTheVehicleForSale() {
+		Vehicle vehicle = new Vehicle(111111111, 2019, "Toyota", "Camry", "Sedan", "Red", 42000, 18500, false);
+
+		assertFalse(service.finalizeContract(vehicle, c -> {
+			throw new SQLException("Duplicate entry");
+		}));
+		assertFalse(row.sold);
+		assertEquals(0, row.contracts.get());
+		assertTrue(events.isEmpty());
+
+		assertTrue(service.finalizeContract(vehicle, c -> execute(c, INSERT_CONTRACT)));
+		assertTrue(row.sold);
+		assertEquals(1, row.contracts.get());
+		assertEquals(1, events.size());
+	}
+
+	private static int execute(Connection c, String sql) throws SQLException {
+		try (PreparedStatement s = c.prepareStatement(sql)) {
+			s.setInt(1, 111111111);
+			return s.executeUpdate();
+		}
+	}
+
+	private static void waitUntil(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "timed out");
+			Thread.onSpinWait();
+		}
+	}
+
+	// one inventory row the way InnoDB treats it: the claiming update locks it until the transaction ends,
+	// a second claim waits for that, and only committed changes are seen by the next transaction
+	private static final class InventoryRow {
+		private final Semaphore lock = new Semaphore(1);
+		private final AtomicInteger contracts = new AtomicInteger();
+		private volatile boolean sold;
+
+		private Connection connect() {
+			Transaction transaction = new Transaction();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+					(proxy, method, args) -> switch (method.getName()) {
+						case "prepareStatement" -> statement(transaction, (String) args[0]);
+						case "commit" -> {
+							if (transaction.claimed) {
+								sold = true;
+							}
+							contracts.addAndGet(transaction.contracts);
+							transaction.end();
+							yield null;
+						}
+						case "rollback", "close" -> {
+							transaction.end();
+							yield null;
+						}
+						default -> null;
+					});
+		}
+
+		private PreparedStatement statement(Transaction transaction, String sql) {
+			return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+						if (!method.getName().equals("executeUpdate")) {
+							return null;
+						}
+						if (sql.contains("is_Sold = false")) {
+							lock.acquire();
+							transaction.locked = true;
+							transaction.claimed = !sold;
+							return transaction.claimed ? 1 : 0;
+						}
+						if (sql.startsWith("insert")) {
+							transaction.contracts++;
+						}
+						return 1;
+					});
+		}
+
+		private final class Transaction {
+			private boolean locked;
+			private boolean claimed;
+			private int contracts;
+
+			private void end() {
+				if (locked) {
+					locked = false;
+					lock.release();
+				}
+				claimed = false;
+				contracts = 0;
+			}
+		}
+	}
+}
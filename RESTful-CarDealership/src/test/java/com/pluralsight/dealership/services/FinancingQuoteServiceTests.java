@@ -0,0 +1,83 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.models.AnnuityFactors;
+import com.pluralsight.dealership.models.LeaseContract;
+import com.pluralsight.dealership.models.QuoteRequest;
+import com.pluralsight.dealership.models.QuoteResponse;
+import com.pluralsight.dealership.models.QuoteTerm;
+import com.pluralsight.dealership.models.SalesContract;
+import com.pluralsight.dealership.models.Vehicle;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FinancingQuoteServiceTests {
+
+	private final FinancingQuoteService service = new FinancingQuoteService();
+
+	@Test
+	void batchQuotesMatchTheContracts() {
+		double[] prices = {8500, 9999.99, 10000, 24500};
+
+		QuoteResponse response = service.quote(new QuoteRequest(prices, null));
+
+		for (int i = 0; i < prices.length; i++) {
+			Vehicle vehicle = new Vehicle(111111111, 2020, "Toyota", "Camry", "Sedan", "Red", 1000, prices[i], false);
+			SalesContract sale = new SalesContract("2025-01-01", "A", "a@example.com", vehicle, 0, 0, 0, true);
+			LeaseContract lease = new LeaseContract("2025-01-01", "A", "a@example.com", vehicle, 0, 0);
+
+			assertEquals(sale.getMonthlyPayment(vehicle), response.salesPayments()[i]);
+			assertEquals(lease.getMonthlyPayment(vehicle), response.leasePayments()[i]);
+		}
+	}
+
+	@Test
+	void customTermsUseTheAnnuityFormula() {
+		QuoteTerm term = new QuoteTerm(0.005, 5);
+
+		QuoteResponse response = service.quote(new QuoteRequest(new double[]{20000}, List.of(term)));
+
+		double growth = Math.pow(1.005, 60);
+		assertEquals(20000 * 0.005 * growth / (growth - 1), response.termPayments()[0][0], 1e-9);
+	}
+
+	@Test
+	void termsThatCannotBePricedAreRejected() {
+		double[] prices = {20000};
+		for (QuoteTerm term : List.of(new QuoteTerm(0.005, 0), new QuoteTerm(0.005, -3),
+				new QuoteTerm(-0.01, 5), new QuoteTerm(Double.NaN, 5), new QuoteTerm(0.005, Integer.MAX_VALUE))) {
+			assertThrows(IllegalArgumentException.class, () -> service.quote(new QuoteRequest(prices, List.of(term))));
+		}
+		// an interest free loan is fine
+		assertEquals(20000.0 / 60, service.quote(new QuoteRequest(prices, List.of(new QuoteTerm(0, 5))))
+				.termPayments()[0][0], 1e-9);
+	}
+
+	@Test
+	void extremeTermsStillGiveAPayment() {
+		double[] prices = {20000};
+		// 100% a month for 1200 months: each payment is about the interest, (1 + r)^n no longer overflows into NaN
+		assertEquals(20000, service.quote(new QuoteRequest(prices, List.of(new QuoteTerm(1.0, 100))))
+				.termPayments()[0][0], 1e-9);
+		// a rate so small that 1 + r is 1 still pays the loan off over the term instead of dividing by 0
+		assertEquals(20000.0 / 1200, service.quote(new QuoteRequest(prices, List.of(new QuoteTerm(1e-300, 100))))
+				.termPayments()[0][0], 1e-9);
+		for (QuoteTerm term : List.of(new QuoteTerm(1.0, 100), new QuoteTerm(1e-300, 100), new QuoteTerm(Double.MIN_VALUE, 1),
+				new QuoteTerm(1e300, 100))) {
+			assertTrue(Double.isFinite(AnnuityFactors.factor(term)), term::toString);
+		}
+	}
+
+	@Test
+	void clientTermsDoNotGrowTheFactorCacheWithoutLimit() {
+		for (int i = 1; i <= 2000; i++) {
+			QuoteTerm term = new QuoteTerm(i / 1_000_000.0, 5);
+			double[] payments = service.quote(new QuoteRequest(new double[]{20000}, List.of(term))).termPayments()[0];
+			assertTrue(Double.isFinite(payments[0]));
+		}
+		assertTrue(AnnuityFactors.size() <= 300);
+	}
+
+}
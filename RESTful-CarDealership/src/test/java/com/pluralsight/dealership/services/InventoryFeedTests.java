@@ -0,0 +1,101 @@
+package com.pluralsight.dealership.services;
+
+import com.pluralsight.dealership.data.InventoryChangeEvent;
+import com.pluralsight.dealership.data.InventoryChanges;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryFeedTests {
+
+	private static final Pattern EVENT_ID = Pattern.compile("^id:(\\S+)$", Pattern.MULTILINE);
+
+	private final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+	private final AtomicReference<Runnable> beforeDelivery = new AtomicReference<>();
+	private final AtomicReference<InventoryFeed> feed = new AtomicReference<>();
+	// stands in for Spring, the version has already gone up when the listener is called
+	private final InventoryChanges changes = new InventoryChanges(event -> {
+		Runnable hook = beforeDelivery.getAndSet(null);
+		if (hook != null) {
+			hook.run();
+		}
+		feed.get().onInventoryChange((InventoryChangeEvent) event);
+	});
+
+	InventoryFeedTests() {
+		feed.set(new InventoryFeed(changes, 256, 4, 60_000) {
+			@Override
+			SseEmitter newEmitter() {
+				return new RecordingEmitter(sent);
+			}
+		});
+	}
+
+	@Test
+	void aClientSubscribingWhileAChangeIsPublishedGetsEachEventOnce() throws Exception {
+		for (int vin = 1; vin <= 5; vin++) {
+			changes.removed(vin);
+		}
+
+		// the client saw version 4, and reconnects after version 6 is counted but before it is delivered
+		String epoch = changes.getEpoch();
+		beforeDelivery.set(() -> feed.get().subscribe(epoch + "-4"));
+		changes.removed(6);
+
+		List<String> ids = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			String id = sent.poll(5, TimeUnit.SECONDS);
+			assertNotNull(id);
+			ids.add(id);
+		}
+		assertEquals(List.of(epoch + "-5", epoch + "-6"), ids);
+		assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+		feed.get().close();
+	}
+
+	@Test
+	void aClientSubscribingBeforeTheFirstEventIsDeliveredIsNotBroken() throws Exception {
+		// nothing is in the replay buffer yet, so there is nothing to replay
+		String epoch = changes.getEpoch();
+		beforeDelivery.set(() -> feed.get().subscribe(epoch + "-0"));
+		changes.removed(1);
+
+		assertEquals(epoch + "-1", sent.poll(5, TimeUnit.SECONDS));
+		assertNull(sent.poll(100, TimeUnit.MILLISECONDS));
+		feed.get().close();
+	}
+
+	// an emitter with no HTTP response behind it that keeps the ids of the events sent to it
+	private static class RecordingEmitter extends SseEmitter {
+		private final BlockingQueue<String> sent;
+
+		private RecordingEmitter(BlockingQueue<String> sent) {
+			this.sent = sent;
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			StringBuilder text = new StringBuilder();
+			for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+				if (part.getData() instanceof String chunk) {
+					text.append(chunk);
+				}
+			}
+			Matcher id = EVENT_ID.matcher(text);
+			if (id.find()) {
+				sent.add(id.group(1));
+			}
+		}
+	}
+}